@@ -1,6 +1,7 @@
 package jplag;
 
 import java.io.File;
+import java.lang.reflect.InvocationTargetException;
 
 /**
  * Common interface for all languages. Each language-front end must provide a
@@ -67,4 +68,44 @@ public interface Language {
      * Convert a token type to a text representation.
      */
     public String type2string(int type);
+
+    /**
+     * Creates another instance of this language with its own parser state, which reports to the given program. Parsers
+     * keep state between the calls of {@link #parse}, so concurrent parsing requires one instance per thread. By
+     * default, the public constructor with a {@link ProgramI} parameter is used, which every frontend provides.
+     * @param program receives the errors and messages of the new instance.
+     * @return the new instance.
+     */
+    public default Language createInstance(ProgramI program) {
+        try {
+            return getClass().getConstructor(ProgramI.class).newInstance(program);
+        } catch (NoSuchMethodException | InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Language " + name() + " cannot be instantiated", e);
+        }
+    }
+
+    /**
+     * Determines whether instances created by {@link #createInstance} can parse concurrently. Frontends with global
+     * (static) parser state, or that assign token types while parsing, have to return false.
+     */
+    public default boolean supportsConcurrentParsing() {
+        return true;
+    }
+
+    /**
+     * Version of the frontend, which identifies the tokens it creates for a given file. By default, the implementation
+     * version of the package of the language is used, which is set when the frontend is packaged.
+     */
+    public default String getVersion() {
+        String version = getClass().getPackage().getImplementationVersion();
+        return (version != null ? version : "unknown");
+    }
+
+    /**
+     * Determines whether the tokens of a file depend only on its content, so that they can be cached across runs.
+     * Frontends that assign token types while parsing have to return false.
+     */
+    public default boolean supportsTokenCaching() {
+        return true;
+    }
 }
@@ -4,8 +4,6 @@ package jplag;
                      // something more descriptive.
 public class Structure implements TokenConstants {
     public Token[] tokens = new Token[0];
-    Table table = null;
-    int hash_length = -1;
 
     private int numberOfTokens;
 
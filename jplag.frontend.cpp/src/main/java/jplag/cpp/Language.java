@@ -77,4 +77,9 @@ public class Language implements jplag.Language {
     public String type2string(int type) {
 		return jplag.cpp.CPPToken.type2string(type);
 	}
+
+	@Override
+	public boolean supportsConcurrentParsing() {
+		return false; // the generated scanner passes its tokens through a static field
+	}
 }
@@ -73,4 +73,9 @@ public class Language implements jplag.Language {
     public String type2string(int type) {
 		return jplag.javax.JavaToken.type2string(type);
 	}
+
+	@Override
+	public boolean supportsConcurrentParsing() {
+		return false; // the generated parser is static
+	}
 }
@@ -81,4 +81,14 @@ public class Language implements jplag.Language {
     public String type2string(int type) {
 		return TextToken.type2string(type);
 	}
+
+	@Override
+	public boolean supportsConcurrentParsing() {
+		return false; // token types are assigned per parser while parsing
+	}
+
+	@Override
+	public boolean supportsTokenCaching() {
+		return false; // token types depend on the files parsed before
+	}
 }
@@ -8,6 +8,7 @@ import jplag.options.JPlagOptions;
 import jplag.options.LanguageOption;
 import jplag.options.Verbosity;
 import jplag.reporting.Report;
+import jplag.strategy.ComparisonMode;
 import net.sourceforge.argparse4j.ArgumentParsers;
 import net.sourceforge.argparse4j.inf.ArgumentParser;
 import net.sourceforge.argparse4j.inf.ArgumentParserException;
@@ -63,6 +64,7 @@ public class CLI {
                 .setDefault(LanguageOption.getDefault().getDisplayName())
                 .help("Select the language to parse the submissions");
         parser.addArgument("-bc").help("Name of the directory which contains the base code (common framework)");
+        parser.addArgument("-bcindex").help("Mask the base code with a single scan per submission instead of a full comparison").action(storeTrue());
         parser.addArgument("-v").choices(verbosityOptions).setDefault("quiet").help("Verbosity");
         parser.addArgument("-d").help("(Debug) parser. Non-parsable files will be stored").action(storeTrue());
         parser.addArgument("-S").help("Look in directories <root-dir>/*/<dir> for programs");
@@ -70,7 +72,26 @@ public class CLI {
         parser.addArgument("-x").help("All files named in this file will be ignored in the comparison (line-separated list)");
         parser.addArgument("-t").help("Tune the sensitivity of the comparison. A smaller <n> increases the sensitivity");
         parser.addArgument("-m").setDefault(0f).help("Match similarity Threshold [0-100]: All matches above this threshold will be saved");
+        parser.addArgument("-n").help("Maximum number of most similar comparisons stored in the result, or with a trailing % the minimum similarity of stored comparisons (default: 0 = all)");
+        parser.addArgument("-discard").help("Keep only the similarities of the comparisons during the run, and compute the matches of the reported comparisons again").action(storeTrue());
         parser.addArgument("-r").setDefault("result").help("Name of directory in which the comparison results will be stored");
+        parser.addArgument("-c")
+                .choices(ComparisonMode.getAllDisplayNames())
+                .setDefault(ComparisonMode.getDefault().getDisplayName())
+                .help("Comparison mode used to compare the submissions");
+        parser.addArgument("-tiling")
+                .choices(TilingMode.getAllDisplayNames())
+                .setDefault(TilingMode.getDefault().getDisplayName())
+                .help("Tiling algorithm used for the pairs of submissions below the suffix array threshold: hashes of the minimum match length, or Running-Karp-Rabin with an adaptive search length");
+        parser.addArgument("-sathreshold").help("Number of tokens of a pair of submissions from which on it is tiled with a suffix array instead of hashes (default: 0 = never)");
+        parser.addArgument("-ptthreshold").help("Number of tokens that both submissions of a pair have to exceed, so that the search of their tiling is split among the threads (default: 50000, 0 = never)");
+        parser.addArgument("-threads").help("Number of threads used for parsing and by the parallel comparison mode (default: number of processors)");
+        parser.addArgument("-bands").help("Number of MinHash bands used by the minhash comparison mode (default: 32)");
+        parser.addArgument("-rows").help("Number of rows per MinHash band used by the minhash comparison mode (default: 1)");
+        parser.addArgument("-new").help("Directory of new submissions, which the incremental comparison mode compares to each other and to the submissions of the root directory");
+        parser.addArgument("-peers").help("Number of most similar peers kept per submission by the incremental comparison mode (default: 0 = all)");
+        parser.addArgument("-cache").help("Directory of the cache, which keeps the tokens of parsed files and the outcomes of comparisons across runs");
+        parser.addArgument("-cachesize").help("Maximum size of the token cache in megabytes (default: 512)");
     }
 
     /**
@@ -106,11 +127,15 @@ public class CLI {
 
         JPlagOptions options = new JPlagOptions(namespace.getString("rootDir"), language);
         options.setBaseCodeSubmissionName(namespace.getString("bc"));
+        options.setBaseCodeIndexMasking(namespace.getBoolean("bcindex"));
         options.setVerbosity(verbosity);
         options.setDebugParser(namespace.getBoolean("d"));
+        options.setDiscardMatches(namespace.getBoolean("discard"));
         options.setSubdirectoryName(namespace.getString("S"));
         options.setFileSuffixes(fileSuffixes);
         options.setExclusionFileName(namespace.getString("x"));
+        options.setComparisonMode(ComparisonMode.fromDisplayName(namespace.getString("c")));
+        options.setTilingMode(TilingMode.fromDisplayName(namespace.getString("tiling")));
 
         String minTokenMatch = namespace.getString("t");
         if (minTokenMatch != null) {
@@ -131,6 +156,83 @@ public class CLI {
             }
         }
 
+        String storeMatches = namespace.getString("n");
+        if (storeMatches != null) {
+            try {
+                options.setStorePercent(storeMatches.endsWith("%"));
+                options.setStoreMatches(Integer.parseInt(storeMatches.replace("%", "")));
+            } catch (NumberFormatException e) {
+                System.out.println("Illegal number of comparisons to store. Storing all comparisons.");
+                options.setStorePercent(false);
+                options.setStoreMatches(0);
+            }
+        }
+
+        String suffixArrayTilingThreshold = namespace.getString("sathreshold");
+        if (suffixArrayTilingThreshold != null) {
+            try {
+                options.setSuffixArrayTilingThreshold(Integer.parseInt(suffixArrayTilingThreshold));
+            } catch (NumberFormatException e) {
+                System.out.println("Illegal suffix array tiling threshold. Taking 0 as default value.");
+            }
+        }
+
+        String parallelTilingThreshold = namespace.getString("ptthreshold");
+        if (parallelTilingThreshold != null) {
+            try {
+                options.setParallelTilingThreshold(Integer.parseInt(parallelTilingThreshold));
+            } catch (NumberFormatException e) {
+                System.out.println("Illegal parallel tiling threshold. Taking 50000 as default value.");
+            }
+        }
+
+        String numberOfThreads = namespace.getString("threads");
+        if (numberOfThreads != null) {
+            try {
+                options.setNumberOfThreads(Integer.parseInt(numberOfThreads));
+            } catch (NumberFormatException e) {
+                System.out.println("Illegal number of threads. Taking the number of processors as default value.");
+            }
+        }
+
+        String minHashBands = namespace.getString("bands");
+        if (minHashBands != null) {
+            try {
+                options.setMinHashBands(Integer.parseInt(minHashBands));
+            } catch (NumberFormatException e) {
+                System.out.println("Illegal number of MinHash bands. Taking 32 as default value.");
+            }
+        }
+
+        String minHashRows = namespace.getString("rows");
+        if (minHashRows != null) {
+            try {
+                options.setMinHashRows(Integer.parseInt(minHashRows));
+            } catch (NumberFormatException e) {
+                System.out.println("Illegal number of MinHash rows. Taking 1 as default value.");
+            }
+        }
+
+        options.setNewSubmissionDirectoryName(namespace.getString("new"));
+        String numberOfSubmissionsToCompareTo = namespace.getString("peers");
+        if (numberOfSubmissionsToCompareTo != null) {
+            try {
+                options.setNumberOfSubmissionsToCompareTo(Integer.parseInt(numberOfSubmissionsToCompareTo));
+            } catch (NumberFormatException e) {
+                System.out.println("Illegal number of peers. Keeping all comparisons.");
+            }
+        }
+
+        options.setTokenCacheDirectory(namespace.getString("cache"));
+        String maximumTokenCacheSize = namespace.getString("cachesize");
+        if (maximumTokenCacheSize != null) {
+            try {
+                options.setMaximumTokenCacheSize(Integer.parseInt(maximumTokenCacheSize));
+            } catch (NumberFormatException e) {
+                System.out.println("Illegal token cache size. Taking 512 megabytes as default value.");
+            }
+        }
+
         return options;
     }
 }
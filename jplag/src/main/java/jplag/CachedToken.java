@@ -0,0 +1,54 @@
+package jplag;
+
+/**
+ * Token that was loaded from the {@link TokenCache} instead of being created by a frontend. It keeps all attributes of
+ * the original token that are used for comparisons and reports.
+ */
+class CachedToken extends Token {
+    private static final long serialVersionUID = -3189469254618307531L;
+
+    private int line;
+    private int column;
+    private int length;
+    private int index;
+
+    public CachedToken(int type, String file, int line, int column, int length, int index) {
+        super(type, file, line, column, length);
+        this.index = index;
+    }
+
+    @Override
+    public int getLine() {
+        return line;
+    }
+
+    @Override
+    public int getColumn() {
+        return column;
+    }
+
+    @Override
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    protected void setLine(int line) {
+        this.line = line;
+    }
+
+    @Override
+    protected void setColumn(int column) {
+        this.column = column;
+    }
+
+    @Override
+    protected void setLength(int length) {
+        this.length = length;
+    }
+}
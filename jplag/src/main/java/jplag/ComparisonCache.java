@@ -0,0 +1,275 @@
+package jplag;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent cache of the outcomes of comparisons, which allows to compare only new or changed submissions when JPlag is
+ * run again on a growing set of submissions. A pair is identified by the digests of the token sequences of both
+ * submissions, so changes that do not affect the tokens (e.g. in comments) keep the cached outcome. All pairs of a
+ * configuration, which consists of the language, the minimum token match and the digest and masking mode of the base
+ * code, are kept in one file.
+ * <p>
+ * The outcome of a pair is either its matches, from which all similarities are derived, or an upper bound of its matched
+ * tokens if the comparison was aborted below the similarity threshold. The file keeps the outcomes of the pairs of the
+ * submissions of the last run and is replaced atomically. All methods except {@link #save(Collection)} can be called
+ * concurrently.
+ */
+public class ComparisonCache {
+
+    private static final int MAGIC = 0x4A50434D; // "JPCM"
+    private static final int FORMAT_VERSION = 1;
+    private static final int DIGEST_SIZE = 16;
+    private static final int EXACT = -1; // upper bound of outcomes with matches
+
+    private final File file;
+    private final Map<ByteBuffer, Outcome> loadedOutcomes;
+    private final Map<ByteBuffer, Outcome> usedOutcomes = new ConcurrentHashMap<>();
+    private final Map<Submission, byte[]> digests = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private boolean invalid = false;
+
+    /**
+     * Creates the cache of a configuration and loads the outcomes of a previous run. A missing or unreadable file is
+     * treated as empty.
+     * @param directory is the cache directory, which has to exist.
+     * @param languageName identifies the language option of the submissions.
+     * @param minimumTokenMatch is the minimum token match of the comparisons.
+     * @param baseCodeSubmission is the parsed base code, or null if there is none.
+     * @param baseCodeIndexMasking is true if the base code is masked with its index instead of a tiling.
+     */
+    public ComparisonCache(File directory, String languageName, int minimumTokenMatch, Submission baseCodeSubmission,
+            boolean baseCodeIndexMasking) {
+        MessageDigest digest = createDigest();
+        digest.update((languageName + '\n' + minimumTokenMatch + '\n').getBytes(StandardCharsets.UTF_8));
+        if (baseCodeSubmission != null) {
+            digest.update(getDigest(baseCodeSubmission));
+            digest.update((byte) (baseCodeIndexMasking ? 1 : 0)); // the masks differ
+        }
+        StringBuilder name = new StringBuilder("comparisons-");
+        for (byte value : digest.digest()) {
+            name.append(String.format("%02x", value));
+        }
+        file = new File(directory, name.append(".bin").toString());
+        loadedOutcomes = load(file);
+    }
+
+    /**
+     * Checks whether the outcome of a comparison is known.
+     * @param subA is the first submission, as oriented by the comparison algorithm.
+     * @param subB is the second submission.
+     * @param minimumMatchedTokens is the number of tokens the comparison has to match, 0 if any number is fine.
+     * @return true if the matches of the pair are cached, or if the pair is known to match fewer tokens.
+     */
+    public boolean contains(Submission subA, Submission subB, int minimumMatchedTokens) {
+        Outcome outcome = loadedOutcomes.get(getKey(subA, subB));
+        boolean known = (outcome != null && (outcome.upperBound == EXACT || outcome.upperBound <= minimumMatchedTokens));
+        (known ? hits : misses).increment();
+        return known;
+    }
+
+    /**
+     * Loads the outcome of a comparison, which has to be {@link #contains(Submission, Submission, int) contained}.
+     * @return the comparison, or null if the pair matches fewer tokens than required.
+     */
+    public JPlagComparison load(Submission subA, Submission subB) {
+        ByteBuffer key = getKey(subA, subB);
+        Outcome outcome = loadedOutcomes.get(key);
+        usedOutcomes.put(key, outcome);
+        if (outcome.upperBound != EXACT) {
+            return null;
+        }
+        JPlagComparison comparison = new JPlagComparison(subA, subB);
+        for (int i = 0; i < outcome.matches.length; i += 3) {
+            comparison.matches.add(new Match(outcome.matches[i], outcome.matches[i + 1], outcome.matches[i + 2]));
+        }
+        return comparison;
+    }
+
+    /**
+     * Stores the matches of a comparison.
+     */
+    public void store(JPlagComparison comparison) {
+        int[] matches = new int[3 * comparison.matches.size()];
+        for (int i = 0; i < comparison.matches.size(); i++) {
+            Match match = comparison.matches.get(i);
+            matches[3 * i] = match.startA;
+            matches[3 * i + 1] = match.startB;
+            matches[3 * i + 2] = match.length;
+        }
+        usedOutcomes.put(getKey(comparison.firstSubmission, comparison.secondSubmission), new Outcome(EXACT, matches));
+    }
+
+    /**
+     * Stores that a comparison was aborted because it matches fewer tokens than required.
+     * @param minimumMatchedTokens is the number of tokens the comparison would have had to match.
+     */
+    public void storeAborted(Submission subA, Submission subB, int minimumMatchedTokens) {
+        ByteBuffer key = getKey(subA, subB);
+        Outcome outcome = loadedOutcomes.get(key);
+        if (outcome == null || outcome.upperBound != EXACT && outcome.upperBound > minimumMatchedTokens) {
+            outcome = new Outcome(minimumMatchedTokens, new int[0]); // keeps the tighter bound
+        }
+        usedOutcomes.put(key, outcome);
+    }
+
+    /**
+     * Replaces the cache file with the outcomes of the pairs of the given submissions, so outcomes of submissions that
+     * were removed or changed are dropped.
+     * @param submissions are the submissions of this run.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(Collection<Submission> submissions) throws IOException {
+        Set<ByteBuffer> currentDigests = new HashSet<>();
+        for (Submission submission : submissions) {
+            if (submission.getTokenSequence() != null) {
+                currentDigests.add(ByteBuffer.wrap(getDigest(submission)));
+            }
+        }
+        Map<ByteBuffer, Outcome> outcomes = new HashMap<>();
+        loadedOutcomes.forEach((key, outcome) -> {
+            ByteBuffer digestA = ByteBuffer.wrap(key.array(), 0, DIGEST_SIZE);
+            ByteBuffer digestB = ByteBuffer.wrap(key.array(), DIGEST_SIZE, DIGEST_SIZE);
+            if (currentDigests.contains(digestA) && currentDigests.contains(digestB)) {
+                outcomes.put(key, outcome);
+            }
+        });
+        outcomes.putAll(usedOutcomes);
+        if (!invalid && outcomes.equals(loadedOutcomes)) {
+            return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(outcomes.size());
+        for (Map.Entry<ByteBuffer, Outcome> entry : outcomes.entrySet()) {
+            output.write(entry.getKey().array());
+            output.writeInt(entry.getValue().upperBound);
+            output.writeInt(entry.getValue().matches.length);
+            for (int value : entry.getValue().matches) {
+                output.writeInt(value);
+            }
+        }
+        output.writeLong(checksum(bytes.toByteArray(), bytes.size()));
+        TokenCache.writeAtomically(file, bytes.toByteArray());
+    }
+
+    public long getNumberOfHits() {
+        return hits.sum();
+    }
+
+    public long getNumberOfMisses() {
+        return misses.sum();
+    }
+
+    private ByteBuffer getKey(Submission subA, Submission subB) {
+        ByteBuffer key = ByteBuffer.allocate(2 * DIGEST_SIZE);
+        key.put(getDigest(subA)).put(getDigest(subB));
+        key.flip();
+        return key;
+    }
+
+    /* The comparison depends only on the token types and the number of files of a submission. */
+    private byte[] getDigest(Submission submission) {
+        return digests.computeIfAbsent(submission, it -> {
+            int[] types = it.getTokenSequence().getTypes();
+            ByteBuffer content = ByteBuffer.allocate(Integer.BYTES * (types.length + 1));
+            content.asIntBuffer().put(types).put(it.files.size());
+            byte[] digest = createDigest().digest(content.array());
+            byte[] truncatedDigest = new byte[DIGEST_SIZE];
+            System.arraycopy(digest, 0, truncatedDigest, 0, DIGEST_SIZE);
+            return truncatedDigest;
+        });
+    }
+
+    private Map<ByteBuffer, Outcome> load(File file) {
+        Map<ByteBuffer, Outcome> outcomes = new HashMap<>();
+        if (!file.isFile()) {
+            return outcomes;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (bytes.length < 3 * Integer.BYTES + Long.BYTES || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+                    || buffer.getLong(bytes.length - Long.BYTES) != checksum(bytes, bytes.length - Long.BYTES)) {
+                throw new IOException("Corrupt comparison cache");
+            }
+            int numberOfOutcomes = buffer.getInt();
+            for (int i = 0; i < numberOfOutcomes; i++) {
+                byte[] key = new byte[2 * DIGEST_SIZE];
+                buffer.get(key);
+                int upperBound = buffer.getInt();
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining() / Integer.BYTES) {
+                    throw new IOException("Corrupt comparison cache");
+                }
+                int[] matches = new int[length];
+                buffer.asIntBuffer().get(matches);
+                buffer.position(buffer.position() + Integer.BYTES * matches.length);
+                outcomes.put(ByteBuffer.wrap(key), new Outcome(upperBound, matches));
+            }
+        } catch (IOException | BufferUnderflowException e) {
+            invalid = true; // the file is replaced
+            outcomes.clear();
+        }
+        return outcomes;
+    }
+
+    private static long checksum(byte[] bytes, int length) {
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes, 0, length);
+        return checksum.getValue();
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every Java platform supports SHA-256
+        }
+    }
+
+    /**
+     * Outcome of a comparison: its matches as (startA, startB, length) triples, or an upper bound of its matched tokens.
+     */
+    private static final class Outcome {
+        final int upperBound;
+        final int[] matches;
+
+        Outcome(int upperBound, int[] matches) {
+            this.upperBound = upperBound;
+            this.matches = matches;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Outcome && ((Outcome) other).upperBound == upperBound
+                    && Arrays.equals(((Outcome) other).matches, matches);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * upperBound + Arrays.hashCode(matches);
+        }
+    }
+}
@@ -1,118 +1,216 @@
 package jplag;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * This class implements the Greedy String Tiling algorithm as introduced by Michael Wise. However, it is very specific
- * to the classes {@link Structure}, {@link Token}, as well as {@link Matches} and {@link Match}.
+ * to the classes {@link TokenSequence}, {@link TokenMarks}, as well as {@link Matches} and {@link Match}.
  * @see <a href=
  * "https://www.researchgate.net/publication/262763983_String_Similarity_via_Greedy_String_Tiling_and_Running_Karp-Rabin_Matching">
  * String Similarity via Greedy String Tiling and Running Karp−Rabin Matching </a>
  */
 public class GreedyStringTiling implements TokenConstants {
 
-    private Matches matches = new Matches();
+    static final long HASH_BASE = 0x100000001B3L; // odd, thus invertible modulo 2^64
+
+    // Scratch space of the comparisons, confined to the comparing thread. This allows concurrent comparisons.
+    private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+    private final TilingEngine suffixArrayTiling = new SuffixArrayTiling();
+    private final TilingEngine runningKarpRabinTiling = new RunningKarpRabinTiling();
+    // The rounds of huge pairs are searched in the common pool, which needs no shutdown and is sized to the processors:
+    private final TilingEngine parallelSuffixArrayTiling = new SuffixArrayTiling(ForkJoinPool.commonPool());
     private JPlag program;
 
+    // Statistics about the quality of the hashes, summed over all comparisons:
+    private final LongAdder hashHits = new LongAdder();
+    private final LongAdder falseHashHits = new LongAdder();
+    private final LongAdder abortedComparisons = new LongAdder();
+
     public GreedyStringTiling(JPlag program) {
         this.program = program;
     }
 
     /**
-     * Creating hashes in linear time. The hash-code will be written in every Token for the next <hash_length> token
-     * (includes the Token itself).
-     * @param structure contains the tokens.
-     * @param hashLength is the hash length (condition: 1 < hashLength < 26)
-     * @param makeTable determines if a simple hash table is created in the structure.
+     * Creating hashes in linear time. The hash-code will be written for every Token for the next <hash_length> token
+     * (includes the Token itself). Windows that contain a file end or a separator token get no hash.
+     * <p>
+     * The hash is a polynomial rolling hash over the full token types with 64-bit arithmetic, so it neither depends on
+     * the number of token types nor restricts the hash length.
+     * @param sequence contains the tokens.
+     * @param hashLength is the hash length (condition: 0 < hashLength)
+     * @param makeTable determines if a hash index is created in the sequence.
      */
-    public void createHashes(Structure structure, int hashLength, boolean makeTable) {
-        // Here the upper boundary of the hash length is set.
-        // It is determined by the number of bits of the 'int' data type and the number of tokens.
+    public void createHashes(TokenSequence sequence, int hashLength, boolean makeTable) {
         if (hashLength < 1) {
             hashLength = 1;
         }
-        hashLength = (hashLength < 26 ? hashLength : 25);
 
-        if (structure.size() < hashLength) {
+        if (sequence.size() < hashLength) {
             return;
         }
 
-        int modulo = ((1 << 6) - 1);   // Modulo 64!
+        int[] types = sequence.getTypes();
 
-        int loops = structure.size() - hashLength;
-        structure.table = (makeTable ? new Table(3 * loops) : null);
-        int hash = 0;
+        int loops = sequence.size() - hashLength;
+        long[] hashes = new long[sequence.size()];
+        Arrays.fill(hashes, HashIndex.NO_HASH);
+        long hash = 0;
         int i;
         int hashedLength = 0;
         for (i = 0; i < hashLength; i++) {
-            hash = (2 * hash) + (structure.tokens[i].type & modulo);
+            hash = (HASH_BASE * hash) + types[i];
             hashedLength++;
-            if (structure.tokens[i].marked) {
+            if (isPivot(types[i])) {
                 hashedLength = 0;
             }
         }
-        int factor = (hashLength != 1 ? (2 << (hashLength - 2)) : 1);
+        long factor = 1; // HASH_BASE^(hashLength - 1), the weight of the oldest token
+        for (i = 1; i < hashLength; i++) {
+            factor *= HASH_BASE;
+        }
 
-        if (makeTable) {
-            for (i = 0; i < loops; i++) {
-                if (hashedLength >= hashLength) {
-                    structure.tokens[i].hash = hash;
-                    structure.table.add(hash, i);   // add into hashtable
-                } else {
-                    structure.tokens[i].hash = -1;
-                }
-                hash -= factor * (structure.tokens[i].type & modulo);
-                hash = (2 * hash) + (structure.tokens[i + hashLength].type & modulo);
-                if (structure.tokens[i + hashLength].marked) {
-                    hashedLength = 0;
-                } else {
-                    hashedLength++;
-                }
+        for (i = 0; i < loops; i++) {
+            if (hashedLength >= hashLength) {
+                hashes[i] = (hash != HashIndex.NO_HASH ? hash : hash + 1);
             }
-        } else {
-            for (i = 0; i < loops; i++) {
-                structure.tokens[i].hash = (hashedLength >= hashLength) ? hash : -1;
-                hash -= factor * (structure.tokens[i].type & modulo);
-                hash = (2 * hash) + (structure.tokens[i + hashLength].type & modulo);
-                if (structure.tokens[i + hashLength].marked) {
-                    hashedLength = 0;
-                } else {
-                    hashedLength++;
-                }
+            hash -= factor * types[i];
+            hash = (HASH_BASE * hash) + types[i + hashLength];
+            if (isPivot(types[i + hashLength])) {
+                hashedLength = 0;
+            } else {
+                hashedLength++;
             }
         }
-        structure.hash_length = hashLength;
+        sequence.hashIndex = (makeTable ? new HashIndex(hashes) : null);
+        sequence.hashes = hashes;
+        sequence.hashLength = hashLength;
+    }
+
+    /**
+     * Creates the hashes and the hash index of a submission, unless they already exist for the configured minimum match
+     * length. Submissions that are compared concurrently have to be prepared beforehand, as their token lists are then
+     * only read.
+     * @param submission is the submission to prepare.
+     */
+    public void prepareHashes(Submission submission) {
+        TokenSequence sequence = submission.getTokenSequence();
+        int minTokenMatch = this.program.getOptions().getMinTokenMatch();
+        if (sequence.hashIndex == null || sequence.hashLength != getHashLength()) {
+            createHashes(sequence, minTokenMatch, true);
+        }
     }
 
     public final JPlagComparison compare(Submission subA, Submission subB) {
-        Submission A, B, tmp;
-        if (subA.tokenList.size() > subB.tokenList.size()) {
+        return compare(subA, subB, 0);
+    }
+
+    /**
+     * Compares two submissions, but gives up as soon as they cannot match a given number of tokens anymore. Before and
+     * after each round of the tiling, the matched tokens plus an upper bound of the tokens that the remaining rounds can
+     * match are checked against this number. Only unmarked tokens that lie in a window whose hash also occurs in the
+     * other submission can be matched, so the bound is the smaller count of these tokens of both submissions.
+     * <p>
+     * If the comparison cache is used, the outcome of a known pair is loaded instead.
+     * @param subA is the first submission.
+     * @param subB is the second submission.
+     * @param minimumMatchedTokens is the number of tokens the comparison has to match, 0 to never give up.
+     * @return the comparison, or null if it cannot match the given number of tokens.
+     */
+    public final JPlagComparison compare(Submission subA, Submission subB, int minimumMatchedTokens) {
+        Submission A, B;
+        if (subA.getNumberOfTokens() > subB.getNumberOfTokens()) {
             A = subA;
             B = subB;
         } else {
             A = subB;
             B = subA;
         }
-        // if hashtable exists in first but not in second structure: flip around!
-        if (B.tokenList.table == null && A.tokenList.table != null) {
-            tmp = A;
-            A = B;
-            B = tmp;
+
+        ComparisonCache comparisonCache = program.getComparisonCache();
+        if (comparisonCache == null) {
+            return tile(A, B, minimumMatchedTokens);
+        }
+        if (comparisonCache.contains(A, B, minimumMatchedTokens)) {
+            return comparisonCache.load(A, B);
+        }
+        JPlagComparison comparison = tile(A, B, minimumMatchedTokens);
+        if (comparison != null) {
+            comparisonCache.store(comparison);
+        } else {
+            comparisonCache.storeAborted(A, B, minimumMatchedTokens);
         }
+        return comparison;
+    }
 
-        return compare(A, B, this.program.getOptions().getMinTokenMatch());
+    /**
+     * Creates the comparison of two submissions without matches, for pairs that are known to share no k-gram. The
+     * submissions are ordered like by {@link #compare(Submission, Submission, int)}, so the comparison equals the one of
+     * the tiling.
+     * @param subA is the first submission.
+     * @param subB is the second submission.
+     * @return the comparison without matches.
+     */
+    public final JPlagComparison createComparisonWithoutMatches(Submission subA, Submission subB) {
+        if (subA.getNumberOfTokens() > subB.getNumberOfTokens()) {
+            return new JPlagComparison(subA, subB);
+        }
+        return new JPlagComparison(subB, subA);
     }
 
-    // first parameter should contain the smaller sequence!!!
-    private final JPlagComparison compare(Submission subA, Submission subB, int mml) {
-        Structure structA = subA.tokenList;
-        Structure structB = subB.tokenList;
+    /**
+     * Compares the submissions of a comparison again, with their original orientation and without the comparison cache,
+     * to restore its discarded matches. The comparison is deterministic, so the matches are the same as before.
+     * @param comparison is the comparison whose matches were discarded.
+     * @return the matches of the comparison.
+     */
+    public final List<Match> recomputeMatches(JPlagComparison comparison) {
+        return tile(comparison.firstSubmission, comparison.secondSubmission, 0).matches;
+    }
+
+    /**
+     * Tiles two submissions with the engine for their size: Pairs with at least
+     * {@link jplag.options.JPlagOptions#getSuffixArrayTilingThreshold() the threshold} of tokens are tiled with a
+     * {@link SuffixArrayTiling suffix array}, which does not rescan the submissions in every round, all others with the
+     * engine of the {@link TilingMode}. If both submissions exceed
+     * {@link jplag.options.JPlagOptions#getParallelTilingThreshold() the parallel tiling threshold}, the search of each
+     * round is split among the threads of the common fork/join pool.
+     */
+    private JPlagComparison tile(Submission subA, Submission subB, int minimumMatchedTokens) {
+        int mml = program.getOptions().getMinTokenMatch();
+        int threshold = program.getOptions().getSuffixArrayTilingThreshold();
+        int parallelThreshold = program.getOptions().getParallelTilingThreshold();
+        boolean parallel = parallelThreshold > 0 && program.getOptions().getNumberOfThreads() > 1
+                && Math.min(subA.getNumberOfTokens(), subB.getNumberOfTokens()) > parallelThreshold;
+        TilingEngine engine;
+        if (threshold > 0 && (long) subA.getNumberOfTokens() + subB.getNumberOfTokens() >= threshold) {
+            engine = (parallel ? parallelSuffixArrayTiling : suffixArrayTiling);
+        } else if (program.getOptions().getTilingMode() == TilingMode.RUNNING_KARP_RABIN) {
+            engine = runningKarpRabinTiling;
+        } else {
+            return compareWithHashes(subA, subB, mml, minimumMatchedTokens, parallel ? ForkJoinPool.commonPool() : null);
+        }
+        JPlagComparison comparison = engine.compare(subA, subB, mml, minimumMatchedTokens);
+        if (comparison == null) {
+            abortedComparisons.increment();
+        }
+        return comparison;
+    }
+
+    // first parameter should contain the smaller sequence!!! Without pool, the rounds search sequentially.
+    private final JPlagComparison compareWithHashes(Submission subA, Submission subB, int mml, int minimumMatchedTokens, ForkJoinPool pool) {
+        TokenSequence sequenceA = subA.getTokenSequence();
+        TokenSequence sequenceB = subB.getTokenSequence();
 
         // FILE_END used as pivot
 
         // init
-        Token[] A = structA.tokens;
-        Token[] B = structB.tokens;
-        int lengthA = structA.size() - 1;  // minus pivots!
-        int lengthB = structB.size() - 1;  // minus pivots!
+        int[] A = sequenceA.getTypes();
+        int[] B = sequenceB.getTypes();
+        int lengthA = sequenceA.size() - 1;  // minus pivots!
+        int lengthB = sequenceB.size() - 1;  // minus pivots!
         JPlagComparison comparison = new JPlagComparison(subA, subB);
 
         if (lengthA < mml || lengthB < mml) {
@@ -120,58 +218,73 @@ public class GreedyStringTiling implements TokenConstants {
         }
 
         // Initialize
-        if (!program.getOptions().hasBaseCode()) {
-            for (int i = 0; i <= lengthA; i++) {
-                A[i].marked = A[i].type == FILE_END || A[i].type == SEPARATOR_TOKEN;
-            }
-
-            for (int i = 0; i <= lengthB; i++) {
-                B[i].marked = B[i].type == FILE_END || B[i].type == SEPARATOR_TOKEN;
-            }
-        } else {
-            for (int i = 0; i <= lengthA; i++) {
-                A[i].marked = A[i].type == FILE_END || A[i].type == SEPARATOR_TOKEN || A[i].basecode;
-            }
-
-            for (int i = 0; i <= lengthB; i++) {
-                B[i].marked = B[i].type == FILE_END || B[i].type == SEPARATOR_TOKEN || B[i].basecode;
-            }
-        }
+        Workspace workspace = workspaces.get();
+        Matches matches = workspace.matches;
+        TokenMarks markedA = workspace.markedA;
+        TokenMarks markedB = workspace.markedB;
+        markedA.copyFrom(subA.getExcludedTokens());
+        markedB.copyFrom(subB.getExcludedTokens());
 
         // start:
-        if (structA.hash_length != this.program.getOptions().getMinTokenMatch()) {
-            createHashes(structA, mml, false);
-        }
-        if (structB.hash_length != this.program.getOptions().getMinTokenMatch() || structB.table == null) {
-            createHashes(structB, mml, true);
+        prepareHashes(subA);
+        prepareHashes(subB);
+        long[] hashesA = sequenceA.hashes;
+        int hashLength = sequenceA.hashLength;
+
+        boolean bounded = (minimumMatchedTokens > 0);
+        int matchableA = 0;
+        int matchableB = 0;
+        if (bounded) {
+            matchableA = countMatchableTokens(hashesA, hashLength, markedA, sequenceB.hashIndex);
+            matchableB = countMatchableTokens(sequenceB.hashes, hashLength, markedB, sequenceA.hashIndex);
+            if (Math.min(matchableA, matchableB) < minimumMatchedTokens) {
+                abortedComparisons.increment();
+                return null;
+            }
         }
 
         int maxmatch;
-        int[] elemsB;
+        HashIndex indexB = sequenceB.hashIndex;
+        int groupB;
+        int hits = 0;
+        int falseHits = 0;
 
         do {
             maxmatch = mml;
             matches.clear();
-            for (int x = 0; x <= lengthA - maxmatch; x++) {
-                if (A[x].marked || A[x].hash == -1 || (elemsB = structB.table.get(A[x].hash)) == null) {
+            if (pool != null) {
+                ParallelMatchSearch.Candidates candidates = pool.invoke(new ParallelMatchSearch(A, B, hashesA, indexB, markedA, markedB, hashLength, mml));
+                maxmatch = candidates.length;
+                for (int i = 0; i < candidates.size(); i++) {
+                    matches.addMatch(candidates.startA(i), candidates.startB(i), maxmatch);
+                }
+                hits += candidates.hits;
+                falseHits += candidates.falseHits;
+            }
+            for (int x = 0; pool == null && x <= lengthA - maxmatch; x++) {
+                if (markedA.isMarked(x) || hashesA[x] == HashIndex.NO_HASH || (groupB = indexB.find(hashesA[x])) == -1) {
                     continue;
                 }
-                inner: for (int i = 1; i <= elemsB[0]; i++) { // elemsB[0] contains the length of the Array
-                    int y = elemsB[i];
-                    if (B[y].marked || maxmatch > lengthB - y) {
+                inner: for (int i = indexB.start(groupB), end = indexB.end(groupB); i < end; i++) {
+                    int y = indexB.position(i);
+                    if (markedB.isMarked(y) || maxmatch > lengthB - y) {
                         continue;
                     }
+                    hits++;
 
                     int j, hx, hy;
                     for (j = maxmatch - 1; j >= 0; j--) { // begins comparison from behind
-                        if (A[hx = x + j].type != B[hy = y + j].type || A[hx].marked || B[hy].marked) {
+                        if (A[hx = x + j] != B[hy = y + j] || markedA.isMarked(hx) || markedB.isMarked(hy)) {
+                            if (j < hashLength && A[hx] != B[hy]) {
+                                falseHits++; // equal hashes of different tokens
+                            }
                             continue inner;
                         }
                     }
 
                     // expand match
                     j = maxmatch;
-                    while (A[hx = x + j].type == B[hy = y + j].type && !A[hx].marked && !B[hy].marked) {
+                    while (A[hx = x + j] == B[hy = y + j] && !markedA.isMarked(hx) && !markedB.isMarked(hy)) {
                         j++;
                     }
 
@@ -187,46 +300,53 @@ public class GreedyStringTiling implements TokenConstants {
                 int y = matches.matches[i].startB;  // begining of sequence B
                 comparison.addMatch(x, y, matches.matches[i].length);
                 // in order that "Match" will be newly build (because reusing)
-                for (int j = matches.matches[i].length; j > 0; j--) {
-                    A[x++].marked = B[y++].marked = true;   // mark all Token!
+                if (bounded) {
+                    matchableA -= markTile(markedA, x, matches.matches[i].length);
+                    matchableB -= markTile(markedB, y, matches.matches[i].length);
+                } else {
+                    markedA.markRange(x, matches.matches[i].length);   // mark all Token!
+                    markedB.markRange(y, matches.matches[i].length);
                 }
             }
 
+            if (bounded && maxmatch != mml
+                    && comparison.getNumberOfMatchedTokens() + Math.min(matchableA, matchableB) < minimumMatchedTokens) {
+                hashHits.add(hits);
+                falseHashHits.add(falseHits);
+                abortedComparisons.increment();
+                return null;
+            }
         } while (maxmatch != mml);
 
+        hashHits.add(hits);
+        falseHashHits.add(falseHits);
+        comparison.releaseMatchIntervals();
         return comparison;
     }
 
-    public final JPlagBaseCodeComparison compareWithBaseCode(Submission subA, Submission subB) {
-        Submission A, B, tmp;
-        if (subA.tokenList.size() > subB.tokenList.size()) {
-            A = subB;
-            B = subA;
-        } else {
-            A = subB;
-            B = subA;
-        }
-        // if hashtable exists in first but not in second structure: flip around!
-        if (B.tokenList.table == null && A.tokenList.table != null) {
-            tmp = A;
-            A = B;
-            B = tmp;
-        }
-
-        return compareWithBaseCode(A, B, this.program.getOptions().getMinTokenMatch());
+    /**
+     * Compares a submission with the base code. The tokens of the submission that match the base code are flagged, so
+     * that subsequent comparisons ignore them.
+     * @param submission is the submission to mask.
+     * @param baseCodeSubmission is the base code.
+     * @return the matches with the base code.
+     */
+    public final JPlagBaseCodeComparison compareWithBaseCode(Submission submission, Submission baseCodeSubmission) {
+        return compareWithBaseCode(submission, baseCodeSubmission, this.program.getOptions().getMinTokenMatch());
     }
 
+    // first parameter has to be the submission, second parameter the base code!
     private JPlagBaseCodeComparison compareWithBaseCode(Submission subA, Submission subB, int mml) {
-        Structure structA = subA.tokenList;
-        Structure structB = subB.tokenList;
+        TokenSequence sequenceA = subA.getTokenSequence();
+        TokenSequence sequenceB = subB.getTokenSequence();
 
         // FILE_END used as pivot
 
         // init
-        Token[] A = structA.tokens;
-        Token[] B = structB.tokens;
-        int lengthA = structA.size() - 1;  // minus pivots!
-        int lengthB = structB.size() - 1;  // minus pivots!
+        int[] A = sequenceA.getTypes();
+        int[] B = sequenceB.getTypes();
+        int lengthA = sequenceA.size() - 1;  // minus pivots!
+        int lengthB = sequenceB.size() - 1;  // minus pivots!
         JPlagBaseCodeComparison baseCodeComparison = new JPlagBaseCodeComparison(subA, subB);
 
         if (lengthA < mml || lengthB < mml) {
@@ -234,47 +354,45 @@ public class GreedyStringTiling implements TokenConstants {
         }
 
         // Initialize
-        for (int i = 0; i <= lengthA; i++) {
-            A[i].marked = A[i].type == FILE_END || A[i].type == SEPARATOR_TOKEN;
-        }
-
-        for (int i = 0; i <= lengthB; i++) {
-            B[i].marked = B[i].type == FILE_END || B[i].type == SEPARATOR_TOKEN;
-        }
+        Workspace workspace = workspaces.get();
+        Matches matches = workspace.matches;
+        TokenMarks markedA = workspace.markedA;
+        TokenMarks markedB = workspace.markedB;
+        markedA.copyFrom(subA.getExcludedTokens());
+        markedB.copyFrom(subB.getExcludedTokens());
+        TokenMarks baseCodeMarks = subA.getExcludedTokens();
 
         // start:
-        if (structA.hash_length != this.program.getOptions().getMinTokenMatch()) {
-            createHashes(structA, mml, true);
-        }
-        if (structB.hash_length != this.program.getOptions().getMinTokenMatch() || structB.table == null) {
-            createHashes(structB, mml, true);
-        }
+        prepareHashes(subA);
+        prepareHashes(subB);
+        long[] hashesA = sequenceA.hashes;
 
         int maxmatch;
-        int[] elemsB;
+        HashIndex indexB = sequenceB.hashIndex;
+        int groupB;
 
         do {
             maxmatch = mml;
             matches.clear();
             for (int x = 0; x <= lengthA - maxmatch; x++) {
-                if (A[x].marked || A[x].hash == -1 || (elemsB = structB.table.get(A[x].hash)) == null) {
+                if (markedA.isMarked(x) || hashesA[x] == HashIndex.NO_HASH || (groupB = indexB.find(hashesA[x])) == -1) {
                     continue;
                 }
-                inner: for (int i = 1; i <= elemsB[0]; i++) {// elemsB[0] contains the length of the Array
-                    int y = elemsB[i];
-                    if (B[y].marked || maxmatch > lengthB - y) {
+                inner: for (int i = indexB.start(groupB), end = indexB.end(groupB); i < end; i++) {
+                    int y = indexB.position(i);
+                    if (markedB.isMarked(y) || maxmatch > lengthB - y) {
                         continue;
                     }
 
                     int j, hx, hy;
                     for (j = maxmatch - 1; j >= 0; j--) { // begins comparison from behind
-                        if (A[hx = x + j].type != B[hy = y + j].type || A[hx].marked || B[hy].marked) {
+                        if (A[hx = x + j] != B[hy = y + j] || markedA.isMarked(hx) || markedB.isMarked(hy)) {
                             continue inner;
                         }
                     }
                     // expand match
                     j = maxmatch;
-                    while (A[hx = x + j].type == B[hy = y + j].type && !A[hx].marked && !B[hy].marked) {
+                    while (A[hx = x + j] == B[hy = y + j] && !markedA.isMarked(hx) && !markedB.isMarked(hy)) {
                         j++;
                     }
 
@@ -290,23 +408,265 @@ public class GreedyStringTiling implements TokenConstants {
                 int y = matches.matches[i].startB;  // beginning in sequence B
                 baseCodeComparison.addMatch(x, y, matches.matches[i].length);
                 // in order that "Match" will be newly build (because reusing)
-                for (int j = matches.matches[i].length; j > 0; j--) {
-                    A[x].marked = B[y].marked = true;   // mark all Token!
-                    A[x].basecode = B[y].basecode = true;
-                    x++;
-                    y++;
-                }
+                markedA.markRange(x, matches.matches[i].length);   // mark all Token!
+                markedB.markRange(y, matches.matches[i].length);
+                baseCodeMarks.markRange(x, matches.matches[i].length);
             }
         } while (maxmatch != mml);
 
+        subA.updateTokenHistogram();
+        baseCodeComparison.releaseMatchIntervals();
         return baseCodeComparison;
     }
 
-    public void resetBaseSubmission(Submission sub) {
-        Structure tmpStruct = sub.tokenList;
-        Token[] tok = tmpStruct.tokens;
-        for (int z = 0; z < tmpStruct.size() - 1; z++) {
-            tok[z].basecode = false;
+    /**
+     * Masks the tokens of a submission that match the base code in a single scan instead of a full tiling. The hash index
+     * of the base code, whose windows have the minimum match length, is built once and shared by all submissions. Every
+     * window of the submission that also occurs in the base code is masked, and each run of masked tokens is reported as
+     * one tile. Thus, every tile of {@link #compareWithBaseCode(Submission, Submission)} is masked as well, and the masks
+     * only differ if parts of the base code occur more than once in the submission.
+     * @param submission is the submission to mask.
+     * @param baseCodeSubmission is the base code.
+     * @return the tiles that match the base code.
+     */
+    public final JPlagBaseCodeComparison compareWithBaseCodeIndex(Submission submission, Submission baseCodeSubmission) {
+        TokenSequence sequenceA = submission.getTokenSequence();
+        TokenSequence sequenceB = baseCodeSubmission.getTokenSequence();
+        int[] A = sequenceA.getTypes();
+        int[] B = sequenceB.getTypes();
+        int lengthA = sequenceA.size() - 1;  // minus pivots!
+        int lengthB = sequenceB.size() - 1;  // minus pivots!
+        int mml = this.program.getOptions().getMinTokenMatch();
+        JPlagBaseCodeComparison baseCodeComparison = new JPlagBaseCodeComparison(submission, baseCodeSubmission);
+
+        if (lengthA < mml || lengthB < mml) {
+            return baseCodeComparison;
         }
+
+        prepareHashes(submission);
+        prepareHashes(baseCodeSubmission);
+        long[] hashesA = sequenceA.hashes;
+        HashIndex indexB = sequenceB.hashIndex;
+        TokenMarks baseCodeMarks = submission.getExcludedTokens();
+
+        int y = -1; // start of the previous window in the base code, -1 if it does not occur there
+        int tileStart = -1;
+        int tileStartB = -1;
+        int tileEnd = -1; // exclusive
+        for (int x = 0; x <= lengthA - mml; x++) {
+            if (hashesA[x] == HashIndex.NO_HASH) {
+                y = -1;
+                continue;
+            }
+            if (y >= 0 && y + mml < lengthB && A[x + mml - 1] == B[y + mml]) {
+                y++; // the window continues the previous one in the base code
+            } else {
+                y = findWindow(A, x, B, lengthB, indexB.find(hashesA[x]), indexB, mml);
+            }
+            if (y < 0) {
+                continue;
+            }
+            if (x > tileEnd) {
+                addBaseCodeTile(baseCodeComparison, baseCodeMarks, tileStart, tileStartB, tileEnd);
+                tileStart = x;
+                tileStartB = y;
+            }
+            tileEnd = x + mml;
+        }
+        addBaseCodeTile(baseCodeComparison, baseCodeMarks, tileStart, tileStartB, tileEnd);
+
+        submission.updateTokenHistogram();
+        return baseCodeComparison;
+    }
+
+    /* Returns the start of a window of the base code with the same tokens as the window of A, or -1 if there is none. */
+    private static int findWindow(int[] A, int x, int[] B, int lengthB, int groupB, HashIndex indexB, int mml) {
+        if (groupB == -1) {
+            return -1;
+        }
+        inner: for (int i = indexB.start(groupB), end = indexB.end(groupB); i < end; i++) {
+            int y = indexB.position(i);
+            if (mml > lengthB - y) {
+                continue;
+            }
+            for (int j = mml - 1; j >= 0; j--) {
+                if (A[x + j] != B[y + j]) {
+                    continue inner; // equal hashes of different tokens
+                }
+            }
+            return y;
+        }
+        return -1;
+    }
+
+    /* Tiles of the base code may overlap in the base code, so they bypass the overlap check of addMatch. */
+    private static void addBaseCodeTile(JPlagBaseCodeComparison comparison, TokenMarks marks, int start, int startB, int end) {
+        if (start >= 0) {
+            comparison.matches.add(new Match(start, startB, end - start));
+            marks.markRange(start, end - start);
+        }
+    }
+
+    /**
+     * Computes an upper bound of the number of tokens that a comparison of two submissions can match. Every matched
+     * token of one submission is paired with a token of the same type of the other submission, so the bound is the sum
+     * of the smaller count of each token type. Excluded tokens (file ends, separators, base code) are not counted.
+     * @param subA is the first submission.
+     * @param subB is the second submission.
+     * @return the upper bound, which is never less than the result of {@link #compare(Submission, Submission)}.
+     */
+    public final int getMatchedTokensUpperBound(Submission subA, Submission subB) {
+        int bound = commonTokens(subA.getTokenHistogram(), subB.getTokenHistogram());
+        // every match has at least the minimum match length:
+        return (bound < this.program.getOptions().getMinTokenMatch() ? 0 : bound);
+    }
+
+    /**
+     * Collects the hashes of all windows of a submission that can be part of a match, i.e. the windows without excluded
+     * tokens. Every token of a match lies in such a window whose hash also occurs in the other submission, so two
+     * submissions without a common hash have no match. The hashes have to be prepared.
+     * @param submission is the submission.
+     * @return the hashes in ascending order, once per window.
+     */
+    public long[] getMatchableHashes(Submission submission) {
+        TokenSequence sequence = submission.getTokenSequence();
+        TokenMarks excluded = submission.getExcludedTokens();
+        long[] hashes = sequence.hashes;
+        int hashLength = sequence.hashLength;
+        long[] matchable = new long[hashes.length];
+        int size = 0;
+        int lastExcluded = -1; // last excluded token up to the end of the current window
+        int scanned = 0;
+        for (int x = 0; x < hashes.length; x++) {
+            for (int windowEnd = Math.min(x + hashLength, hashes.length); scanned < windowEnd; scanned++) {
+                if (excluded.isMarked(scanned)) {
+                    lastExcluded = scanned;
+                }
+            }
+            if (hashes[x] != HashIndex.NO_HASH && lastExcluded < x) {
+                matchable[size++] = hashes[x];
+            }
+        }
+        Arrays.sort(matchable, 0, size);
+        return Arrays.copyOf(matchable, size);
+    }
+
+    /**
+     * @param submission is the submission.
+     * @return the distinct hashes of {@link #getMatchableHashes(Submission)} in ascending order.
+     */
+    public long[] getDistinctHashes(Submission submission) {
+        long[] hashes = getMatchableHashes(submission);
+        int numberOfDistinctHashes = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (numberOfDistinctHashes == 0 || hashes[numberOfDistinctHashes - 1] != hashes[i]) {
+                hashes[numberOfDistinctHashes++] = hashes[i];
+            }
+        }
+        return Arrays.copyOf(hashes, numberOfDistinctHashes);
+    }
+
+    /**
+     * Counts the pairs of positions of a submission whose windows have the same hash. This is the number of hash hits of
+     * a comparison of the submission with itself, and it bounds the hash hits of its comparisons with others: Two
+     * submissions with the counts c1 and c2 have at most sqrt(c1 * c2) hash hits per round. The hashes must be
+     * {@link #prepareHashes(Submission) prepared}.
+     * @param submission is the submission.
+     * @return the number of position pairs with equal hashes, including the pairs of a position with itself.
+     */
+    public long getNumberOfHashPairs(Submission submission) {
+        HashIndex index = submission.getTokenSequence().hashIndex;
+        long pairs = 0;
+        if (index == null) {
+            return pairs; // shorter than a window
+        }
+        for (int group = 0; group < index.getNumberOfGroups(); group++) {
+            long size = index.end(group) - index.start(group);
+            pairs += size * size;
+        }
+        return pairs;
+    }
+
+    /**
+     * @return the length of the hashed windows, which is the minimum match length.
+     */
+    public int getHashLength() {
+        return Math.max(this.program.getOptions().getMinTokenMatch(), 1);
+    }
+
+    /* Marks the tokens of a tile and returns how many of them were unmarked before. */
+    private static int markTile(TokenMarks marks, int start, int length) {
+        int newlyMarked = 0;
+        for (int i = start; i < start + length; i++) {
+            if (!marks.isMarked(i)) {
+                marks.mark(i);
+                newlyMarked++;
+            }
+        }
+        return newlyMarked;
+    }
+
+    /* Counts the unmarked tokens that lie in at least one window whose hash occurs in the other token list. */
+    private static int countMatchableTokens(long[] hashes, int hashLength, TokenMarks marks, HashIndex otherIndex) {
+        int count = 0;
+        int coveredUntil = 0;
+        for (int x = 0; x < hashes.length; x++) {
+            if (hashes[x] == HashIndex.NO_HASH || otherIndex.find(hashes[x]) == -1) {
+                continue;
+            }
+            for (int i = Math.max(x, coveredUntil); i < x + hashLength; i++) {
+                if (!marks.isMarked(i)) {
+                    count++;
+                }
+            }
+            coveredUntil = x + hashLength;
+        }
+        return count;
+    }
+
+    /* Sum of the smaller count per token type, which bounds the number of tokens two token lists can match. */
+    private static int commonTokens(int[] histogramA, int[] histogramB) {
+        int common = 0;
+        for (int type = Math.min(histogramA.length, histogramB.length) - 1; type >= 0; type--) {
+            common += Math.min(histogramA[type], histogramB[type]);
+        }
+        return common;
+    }
+
+    /**
+     * @return the number of candidate positions that were found through the hash index by all comparisons so far.
+     */
+    public long getNumberOfHashHits() {
+        return hashHits.sum();
+    }
+
+    /**
+     * @return the number of hash hits whose hashed tokens turned out to be different, thus false positives of the hash.
+     */
+    public long getNumberOfFalseHashHits() {
+        return falseHashHits.sum();
+    }
+
+    /**
+     * @return the number of comparisons that were given up because they could not reach the required matched tokens.
+     */
+    public long getNumberOfAbortedComparisons() {
+        return abortedComparisons.sum();
+    }
+
+    /**
+     * File ends and separators are never part of a match.
+     */
+    static boolean isPivot(int type) {
+        return type == FILE_END || type == SEPARATOR_TOKEN;
+    }
+
+    /**
+     * Mutable state of a single comparison, reused by all comparisons of one thread.
+     */
+    private static final class Workspace {
+        private final Matches matches = new Matches();
+        private final TokenMarks markedA = new TokenMarks(0);
+        private final TokenMarks markedB = new TokenMarks(0);
     }
 }
@@ -0,0 +1,145 @@
+package jplag;
+
+import java.util.Arrays;
+
+/**
+ * Maps hash values to the token positions that have this hash value. All data is stored in flat arrays: an
+ * open-addressing table maps each distinct hash to a group, and the positions of each group are stored contiguously
+ * and in ascending order (compressed sparse row layout). Thus, the positions of a hash are scanned as one array range.
+ * <p>
+ * Note: This class replaces the former bucket table and is only used by {@link GreedyStringTiling}.
+ */
+public final class HashIndex {
+
+    /**
+     * Hash value of token positions that have no hash.
+     */
+    public static final long NO_HASH = -1;
+
+    private static final int NO_GROUP = -1;
+
+    private final long[] keys;     // hash value of every slot
+    private final int[] groups;    // group of every slot, NO_GROUP if the slot is empty
+    private final int shift;
+    private final int[] offsets;   // positions of group g: positions[offsets[g]] ... positions[offsets[g + 1] - 1]
+    private final int[] positions;
+    private final int numberOfGroups;
+
+    /**
+     * Creates the index of a hash array.
+     * @param hashes contains the hash of every token position, or {@link #NO_HASH} for positions without hash.
+     */
+    public HashIndex(long[] hashes) {
+        this(hashes, hashes.length);
+    }
+
+    /**
+     * Creates the index of the first positions of a hash array, which allows to reuse a larger array.
+     * @param hashes contains the hash of every token position, or {@link #NO_HASH} for positions without hash.
+     * @param length is the number of positions to index.
+     */
+    public HashIndex(long[] hashes, int length) {
+        int numberOfHashes = 0;
+        for (int i = 0; i < length; i++) {
+            if (hashes[i] != NO_HASH) {
+                numberOfHashes++;
+            }
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(2, 2 * numberOfHashes) - 1) << 1; // at most half full
+        keys = new long[capacity];
+        groups = new int[capacity];
+        Arrays.fill(groups, NO_GROUP);
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+
+        // 1. assign groups and count their sizes:
+        int[] groupOfPosition = new int[length];
+        int[] sizes = new int[numberOfHashes + 1];
+        int groupCount = 0;
+        for (int i = 0; i < length; i++) {
+            long hash = hashes[i];
+            if (hash == NO_HASH) {
+                continue;
+            }
+            int slot = slot(hash);
+            while (groups[slot] != NO_GROUP && keys[slot] != hash) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            if (groups[slot] == NO_GROUP) {
+                keys[slot] = hash;
+                groups[slot] = groupCount++;
+            }
+            groupOfPosition[i] = groups[slot];
+            sizes[groups[slot]]++;
+        }
+        numberOfGroups = groupCount;
+
+        // 2. lay out the groups contiguously:
+        offsets = new int[groupCount + 1];
+        for (int g = 0; g < groupCount; g++) {
+            offsets[g + 1] = offsets[g] + sizes[g];
+        }
+        positions = new int[numberOfHashes];
+        int[] next = sizes; // reused as write cursor
+        System.arraycopy(offsets, 0, next, 0, groupCount);
+        for (int i = 0; i < length; i++) {
+            if (hashes[i] != NO_HASH) {
+                positions[next[groupOfPosition[i]]++] = i;
+            }
+        }
+    }
+
+    /**
+     * @return the group of positions with the given hash, or -1 if no position has this hash.
+     */
+    public int find(long hash) {
+        int slot = slot(hash);
+        int group;
+        while ((group = groups[slot]) != NO_GROUP) {
+            if (keys[slot] == hash) {
+                return group;
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        return NO_GROUP;
+    }
+
+    /**
+     * @return the offset of the first position of a group.
+     */
+    public int start(int group) {
+        return offsets[group];
+    }
+
+    /**
+     * @return the offset behind the last position of a group.
+     */
+    public int end(int group) {
+        return offsets[group + 1];
+    }
+
+    /**
+     * @return the token position at an offset.
+     */
+    public int position(int offset) {
+        return positions[offset];
+    }
+
+    /**
+     * @return the number of indexed positions.
+     */
+    public int size() {
+        return positions.length;
+    }
+
+    /**
+     * @return the number of distinct hash values.
+     */
+    public int getNumberOfGroups() {
+        return numberOfGroups;
+    }
+
+    private int slot(long hash) {
+        return (int) ((hash * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+}
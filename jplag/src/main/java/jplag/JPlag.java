@@ -10,17 +10,31 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import jplag.options.JPlagOptions;
 import jplag.options.LanguageOption;
 import jplag.strategy.ComparisonMode;
+import jplag.strategy.ComparisonSink;
 import jplag.strategy.ComparisonStrategy;
+import jplag.strategy.IncrementalComparisonStrategy;
+import jplag.strategy.IndexedComparisonStrategy;
+import jplag.strategy.MinHashComparisonStrategy;
 import jplag.strategy.NormalComparisonStrategy;
+import jplag.strategy.ParallelComparisonStrategy;
+import jplag.strategy.PrefixFilterComparisonStrategy;
+import jplag.strategy.ScheduledComparisonStrategy;
 
 /**
  * This class coordinates the whole program flow.
@@ -31,6 +45,8 @@ public class JPlag implements ProgramI {
     private Submission baseCodeSubmission = null;
     private HashSet<String> excludedFileNames = null; // Set of file names to be excluded in comparison.
     private Language language;
+    private TokenCache tokenCache; // Keeps the tokens of parsed files across runs, if configured.
+    private ComparisonCache comparisonCache; // Keeps the outcomes of comparisons across runs, if configured.
 
     // CORE COMPONENTS:
     private ComparisonStrategy comparisonStrategy;
@@ -53,6 +69,7 @@ public class JPlag implements ProgramI {
     public JPlag(JPlagOptions options) throws ExitException {
         this.options = options;
         initializeLanguage();
+        initializeTokenCache();
         initializeComparisonStrategy();
         checkBaseCodeOption();
     }
@@ -65,6 +82,42 @@ public class JPlag implements ProgramI {
      * @throws ExitException if the JPlag exits preemptively.
      */
     public JPlagResult run() throws ExitException {
+        Vector<Submission> submissions = prepareSubmissions();
+        JPlagResult result = comparisonStrategy.compareSubmissions(submissions, baseCodeSubmission);
+        if (options.isDiscardMatches()) {
+            result.setGreedyStringTiling(gSTiling);
+        }
+        printComparisonStatistics();
+        saveComparisonCache(submissions);
+        return result;
+    }
+
+    /**
+     * Main procedure which passes the comparisons to a sink as soon as they are computed instead of collecting them. This
+     * allows to process the comparisons of large sets of submissions with bounded memory.
+     * @param sink receives the comparisons whose similarity is above the threshold.
+     * @return the results without comparisons, which contain only the similarity distribution.
+     * @throws ExitException if the JPlag exits preemptively.
+     */
+    public JPlagResult run(ComparisonSink sink) throws ExitException {
+        Vector<Submission> submissions = prepareSubmissions();
+        long timeBeforeStartInMillis = System.currentTimeMillis();
+        int[] similarityDistribution = new int[10];
+        comparisonStrategy.compareSubmissions(submissions, baseCodeSubmission, comparison -> {
+            similarityDistribution[JPlagResult.getSimilarityInterval(comparison)]++;
+            sink.accept(comparison);
+        });
+        long durationInMillis = System.currentTimeMillis() - timeBeforeStartInMillis;
+        printComparisonStatistics();
+        saveComparisonCache(submissions);
+        return new JPlagResult(similarityDistribution, durationInMillis, submissions.size(), options);
+    }
+
+    /**
+     * Finds and parses the submissions, and prepares their comparison.
+     * @return the valid submissions.
+     */
+    private Vector<Submission> prepareSubmissions() throws ExitException {
         // 1. Preparation:
         File rootDir = new File(options.getRootDirName());
         if (!rootDir.exists()) {
@@ -77,6 +130,7 @@ public class JPlag implements ProgramI {
 
         // 2. Parse and validate submissions:
         Vector<Submission> submissions = findSubmissions(rootDir);
+        submissions.addAll(findNewSubmissions(rootDir));
         parseAllSubmissions(submissions, baseCodeSubmission);
         submissions = filterValidSubmissions(submissions);
         if (submissions.size() < 2) {
@@ -86,11 +140,15 @@ public class JPlag implements ProgramI {
                     ExitException.NOT_ENOUGH_SUBMISSIONS_ERROR);
         }
 
-        // 3. Compare valid submissions:
+        // 3. Prepare the comparison of valid submissions:
         errorVector = null; // errorVector is not needed anymore
         System.gc();
-        JPlagResult result = comparisonStrategy.compareSubmissions(submissions, baseCodeSubmission);
-        return result;
+        if (options.getTokenCacheDirectory() != null) {
+            comparisonCache = new ComparisonCache(new File(options.getTokenCacheDirectory()),
+                    options.getLanguageOption().name(), options.getMinTokenMatch(), baseCodeSubmission,
+                    options.isBaseCodeIndexMasking());
+        }
+        return submissions;
     }
 
     @Override
@@ -106,6 +164,27 @@ public class JPlag implements ProgramI {
         return language;
     }
 
+    /**
+     * @return the token cache, or null if no cache is used.
+     */
+    TokenCache getTokenCache() {
+        return tokenCache;
+    }
+
+    /**
+     * @return the comparison cache, or null if no cache is used.
+     */
+    ComparisonCache getComparisonCache() {
+        return comparisonCache;
+    }
+
+    /**
+     * @return the strategy that compares the submissions, which keeps the statistics of the last run.
+     */
+    ComparisonStrategy getComparisonStrategy() {
+        return comparisonStrategy;
+    }
+
     /**
      * @return the program options which allow to configure JPlag.
      */
@@ -217,6 +296,32 @@ public class JPlag implements ProgramI {
         return mapFileNamesInRootDirToSubmissions(fileNamesInRootDir, rootDir);
     }
 
+    /**
+     * Finds the submissions in the directory of new submissions, if there is one. Their names must differ from the names
+     * in the root directory.
+     */
+    private Vector<Submission> findNewSubmissions(File rootDir) throws ExitException {
+        if (options.getNewSubmissionDirectoryName() == null) {
+            return new Vector<>();
+        }
+        File newSubmissionDir = new File(options.getNewSubmissionDirectoryName());
+        if (!newSubmissionDir.isDirectory()) {
+            throw new ExitException(options.getNewSubmissionDirectoryName() + " is not a directory!",
+                    ExitException.BAD_PARAMETER);
+        }
+        String[] fileNames = getSortedFileNamesInRootDir(newSubmissionDir);
+        List<String> existingFileNames = Arrays.asList(getSortedFileNamesInRootDir(rootDir));
+        for (String fileName : fileNames) {
+            if (existingFileNames.contains(fileName)) {
+                throw new ExitException("New submission \"" + fileName + "\" also exists in the root directory!",
+                        ExitException.BAD_PARAMETER);
+            }
+        }
+        Vector<Submission> submissions = mapFileNamesInRootDirToSubmissions(fileNames, newSubmissionDir);
+        submissions.forEach(Submission::markAsNew);
+        return submissions;
+    }
+
     private String[] getSortedFileNamesInRootDir(File rootDir) throws ExitException {
         String[] fileNamesInRootDir;
 
@@ -238,9 +343,31 @@ public class JPlag implements ProgramI {
 
     private void initializeComparisonStrategy() throws ExitException {
         ComparisonMode mode = options.getComparisonMode();
-        switch (mode) { // TODO TS: Currently only one comparison strategy supported
+        switch (mode) {
             case NORMAL:
-                this.comparisonStrategy = new NormalComparisonStrategy(options, gSTiling);
+                this.comparisonStrategy = new NormalComparisonStrategy(options, gSTiling, this);
+                return;
+            case PARALLEL:
+                this.comparisonStrategy = new ParallelComparisonStrategy(options, gSTiling, this);
+                return;
+            case INDEXED:
+                this.comparisonStrategy = new IndexedComparisonStrategy(options, gSTiling, this);
+                return;
+            case MINHASH:
+                this.comparisonStrategy = new MinHashComparisonStrategy(options, gSTiling, this);
+                return;
+            case PREFIX_FILTER:
+                this.comparisonStrategy = new PrefixFilterComparisonStrategy(options, gSTiling, this);
+                return;
+            case INCREMENTAL:
+                if (options.getNewSubmissionDirectoryName() == null) {
+                    throw new ExitException("The incremental comparison mode requires a directory of new submissions!",
+                            ExitException.BAD_PARAMETER);
+                }
+                this.comparisonStrategy = new IncrementalComparisonStrategy(options, gSTiling, this);
+                return;
+            case SCHEDULED:
+                this.comparisonStrategy = new ScheduledComparisonStrategy(options, gSTiling, this);
                 return;
             default:
                 throw new ExitException("Illegal comparison mode: " + options.getComparisonMode());
@@ -270,6 +397,23 @@ public class JPlag implements ProgramI {
         System.out.println("Initialized language " + this.getLanguage().name());
     }
 
+    private void initializeTokenCache() throws ExitException {
+        if (options.getTokenCacheDirectory() == null) {
+            return;
+        }
+        File cacheDirectory = new File(options.getTokenCacheDirectory());
+        if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+            throw new ExitException("Cannot create cache directory " + cacheDirectory, ExitException.BAD_PARAMETER);
+        }
+        if (!language.supportsTokenCaching()) {
+            System.out.println("Language " + language.name() + " does not support the token cache, only comparisons are cached.");
+            return;
+        }
+        long maximumSize = options.getMaximumTokenCacheSize() * 1024L * 1024L;
+        tokenCache = new TokenCache(cacheDirectory, maximumSize,
+                options.getLanguageOption().name(), language.getVersion());
+    }
+
     /*
      * 对提交的文件进行验证，文件是否被排除，后缀是否被忽略，子目录是否有效，是否为基础代码.
      * 
@@ -329,6 +473,7 @@ public class JPlag implements ProgramI {
             parseSubmissions(submissions);
             System.gc();
             parseBaseCodeSubmission(baseCodeSubmission);
+            evictTokenCache();
         } catch (OutOfMemoryError e) {
             System.gc();
 
@@ -367,7 +512,7 @@ public class JPlag implements ProgramI {
         }
 
         if (options.hasBaseCode()) {
-            gSTiling.createHashes(subm.tokenList, options.getMinTokenMatch(), true);
+            gSTiling.prepareHashes(subm);
         }
 
         print("\nBasecode submission parsed!\n", null);
@@ -378,6 +523,54 @@ public class JPlag implements ProgramI {
                 + ((time / 60000 > 0) ? ((time / 60000) % 60000) + " min " : "") + (time / 1000 % 60) + " sec\n");
     }
 
+    /**
+     * Starts parsing the submissions concurrently, if more than one thread is configured and the language supports it.
+     * Each worker thread parses with its own language instance. The messages of a submission are collected and reported
+     * when its result is awaited, so that they appear in the same order as with sequential parsing.
+     * @return the results of the submissions in their order, or null if the submissions have to be parsed sequentially.
+     */
+    private List<Future<ParsedSubmission>> parseSubmissionsConcurrently(Vector<Submission> submissions) {
+        if (options.getNumberOfThreads() <= 1 || submissions.size() <= 1 || !language.supportsConcurrentParsing()) {
+            return null;
+        }
+        ThreadLocal<ParserOutput> outputs = ThreadLocal.withInitial(ParserOutput::new);
+        ThreadLocal<Language> languages = ThreadLocal.withInitial(() -> language.createInstance(outputs.get()));
+        ExecutorService executor = Executors.newFixedThreadPool(options.getNumberOfThreads());
+        List<Future<ParsedSubmission>> parsedSubmissions = new ArrayList<>();
+        try {
+            for (Submission submission : submissions) {
+                parsedSubmissions.add(executor.submit(() -> {
+                    boolean ok = submission.parse(languages.get(), outputs.get());
+                    return new ParsedSubmission(ok, outputs.get().takeMessages());
+                }));
+            }
+        } finally {
+            executor.shutdown(); // the submitted tasks are still executed
+        }
+        return parsedSubmissions;
+    }
+
+    /**
+     * Waits until a submission is parsed and reports its messages.
+     * @return true if the submission was parsed successfully.
+     */
+    private boolean awaitParsing(Future<ParsedSubmission> parsedSubmission) {
+        try {
+            ParsedSubmission result = parsedSubmission.get();
+            result.messages.forEach(message -> message.accept(this));
+            return result.ok;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing submission \"" + currentSubmissionName + "\"", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
     /**
      * Parse all given submissions.
      */
@@ -393,6 +586,8 @@ public class JPlag implements ProgramI {
         Iterator<Submission> iter = submissions.iterator();
 
         int invalid = 0;
+        List<Future<ParsedSubmission>> parsedSubmissions = parseSubmissionsConcurrently(submissions);
+        Iterator<Future<ParsedSubmission>> parsedIter = (parsedSubmissions != null ? parsedSubmissions.iterator() : null);
         while (iter.hasNext()) {
             boolean ok;
             boolean removed = false;
@@ -401,7 +596,12 @@ public class JPlag implements ProgramI {
             print(null, "------ Parsing submission: " + subm.name + "\n");
             currentSubmissionName = subm.name;
             // 对提交的代码进行parse
-            if (!(ok = subm.parse())) {
+            if (parsedIter != null) {
+                ok = awaitParsing(parsedIter.next());
+            } else {
+                ok = subm.parse();
+            }
+            if (!ok) {
                 errors++;
             }
             // parse总数(包括错误的)
@@ -439,6 +639,46 @@ public class JPlag implements ProgramI {
                         + "Time per parsed submission: " + (count > 0 ? (time / count) : "n/a") + " msec\n\n");
     }
 
+    /**
+     * Print how many files were loaded from the token cache and evict the entries beyond its maximum size.
+     */
+    private void evictTokenCache() {
+        if (tokenCache == null) {
+            return;
+        }
+        int evicted = tokenCache.evict();
+        print(null, "Token cache: " + tokenCache.getNumberOfHits() + " hits, " + tokenCache.getNumberOfMisses() + " misses, "
+                + tokenCache.getNumberOfInvalidEntries() + " invalid entries, " + evicted + " entries evicted\n");
+    }
+
+    /**
+     * Store the outcomes of the comparisons of this run for the next one.
+     */
+    private void saveComparisonCache(Vector<Submission> submissions) {
+        if (comparisonCache == null) {
+            return;
+        }
+        print(null, "Comparison cache: " + comparisonCache.getNumberOfHits() + " hits, " + comparisonCache.getNumberOfMisses()
+                + " misses\n");
+        try {
+            comparisonCache.save(submissions);
+        } catch (IOException e) {
+            print("Comparison cache could not be saved: " + e.getMessage() + "\n", null);
+        }
+    }
+
+    /**
+     * Print how many candidates found through the hashes of the comparison algorithm were false positives.
+     */
+    private void printComparisonStatistics() {
+        long hits = gSTiling.getNumberOfHashHits();
+        long falseHits = gSTiling.getNumberOfFalseHashHits();
+        print(null, "Hash hits: " + hits + ", false hash hits: " + falseHits + " ("
+                + String.format("%.2f", hits > 0 ? 100.0 * falseHits / hits : 0.0) + "%)\n");
+        print(null, "Comparisons aborted below the similarity threshold: " + gSTiling.getNumberOfAbortedComparisons() + "\n");
+        comparisonStrategy.printStatistics();
+    }
+
     /**
      * Print all errors from the errorVector.
      */
@@ -485,4 +725,17 @@ public class JPlag implements ProgramI {
             }
         }
     }
+
+    /**
+     * Result of parsing a submission concurrently.
+     */
+    private static final class ParsedSubmission {
+        private final boolean ok;
+        private final List<Consumer<ProgramI>> messages;
+
+        private ParsedSubmission(boolean ok, List<Consumer<ProgramI>> messages) {
+            this.ok = ok;
+            this.messages = messages;
+        }
+    }
 }
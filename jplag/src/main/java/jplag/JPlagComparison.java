@@ -19,6 +19,9 @@ public class JPlagComparison implements Comparator<JPlagComparison> {
 
     public List<Match> matches = new ArrayList<>();
 
+    private MatchIntervals intervals = null; // index of the matches for overlap checks, null if released
+    private int numberOfDiscardedTokens = -1; // matched tokens if the matches were discarded, -1 otherwise
+
     public JPlagComparison(Submission firstSubmission, Submission secondSubmission) {
         this.firstSubmission = firstSubmission;
         this.secondSubmission = secondSubmission;
@@ -26,14 +29,30 @@ public class JPlagComparison implements Comparator<JPlagComparison> {
 
     // length为Token数量
     public final void addMatch(int startA, int startB, int length) {
+        if (intervals == null || intervals.size() != matches.size()) {
+            indexMatches(); // the matches were changed directly
+        }
+        if (intervals.overlaps(startA, startB, length)) {
+            return;
+        }
+        intervals.add(startA, startB, length);
+        matches.add(new Match(startA, startB, length));
+    }
+
+    /**
+     * Releases the index of the matches, which is only needed while matches are added.
+     */
+    final void releaseMatchIntervals() {
+        intervals = null;
+    }
+
+    private void indexMatches() {
+        intervals = new MatchIntervals();
         for (Match match : matches) {
-            if (match.overlap(startA, startB, length)) {
-                return;
+            if (!intervals.overlaps(match.startA, match.startB, match.length)) {
+                intervals.add(match.startA, match.startB, match.length);
             }
         }
-
-        matches.add(new Match(startA, startB, length));
-        System.out.println("已添加matches, startA,startB " + startA + "---" + startB);
     }
 
     /*
@@ -83,6 +102,9 @@ public class JPlagComparison implements Comparator<JPlagComparison> {
      * Get the total number of matched tokens for this comparison. 本次对比中tokens总数
      */
     public final int getNumberOfMatchedTokens() {
+        if (numberOfDiscardedTokens >= 0) {
+            return numberOfDiscardedTokens;
+        }
         int numberOfMatchedTokens = 0;
 
         for (Match match : matches) {
@@ -92,6 +114,35 @@ public class JPlagComparison implements Comparator<JPlagComparison> {
         return numberOfMatchedTokens;
     }
 
+    /**
+     * Discards the matches to save memory, but keeps their number of matched tokens, so all similarities stay
+     * available. The matches can be {@link #restoreMatches(List) restored} by comparing the submissions again.
+     */
+    public final void discardMatches() {
+        if (numberOfDiscardedTokens < 0) {
+            numberOfDiscardedTokens = getNumberOfMatchedTokens();
+            matches = new ArrayList<>(0);
+            intervals = null;
+        }
+    }
+
+    /**
+     * Restores discarded matches.
+     * @param matches are the matches, as found by comparing the submissions again.
+     */
+    public final void restoreMatches(List<Match> matches) {
+        this.matches = matches;
+        intervals = null;
+        numberOfDiscardedTokens = -1;
+    }
+
+    /**
+     * @return true if the matches were discarded and not restored yet.
+     */
+    public final boolean hasDiscardedMatches() {
+        return numberOfDiscardedTokens >= 0;
+    }
+
     // 本次对比中最大的token数，用于颜色更改
     private int biggestMatch() {
         int erg = 0;
@@ -114,6 +165,13 @@ public class JPlagComparison implements Comparator<JPlagComparison> {
     // 以下代码计算相似度，avg, self, min, max
     // 大量重复，建议改写为方法传参
     public final float percent() {
+        return percent(getNumberOfMatchedTokens());
+    }
+
+    /**
+     * @return the average similarity of this comparison if it had the given number of matched tokens.
+     */
+    public final float percent(int numberOfMatchedTokens) {
         float sa, sb;
         if (bcMatchesB != null && bcMatchesA != null) {
             sa = firstSubmission.getNumberOfTokens() - firstSubmission.files.size()
@@ -124,11 +182,15 @@ public class JPlagComparison implements Comparator<JPlagComparison> {
             sa = firstSubmission.getNumberOfTokens() - firstSubmission.files.size();
             sb = secondSubmission.getNumberOfTokens() - secondSubmission.files.size();
         }
-        return (200 * (float) getNumberOfMatchedTokens()) / (sa + sb);
+        return (200 * (float) numberOfMatchedTokens) / (sa + sb);
     }
 
     // self
     public final float percentA() {
+        return percentA(getNumberOfMatchedTokens());
+    }
+
+    private float percentA(int numberOfMatchedTokens) {
         int divisor;
         if (bcMatchesA != null) {
             divisor = firstSubmission.getNumberOfTokens() - firstSubmission.files.size()
@@ -136,11 +198,15 @@ public class JPlagComparison implements Comparator<JPlagComparison> {
         } else {
             divisor = firstSubmission.getNumberOfTokens() - firstSubmission.files.size();
         }
-        return (divisor == 0 ? 0f : (getNumberOfMatchedTokens() * 100 / (float) divisor));
+        return (divisor == 0 ? 0f : (numberOfMatchedTokens * 100 / (float) divisor));
     }
 
     // self
     public final float percentB() {
+        return percentB(getNumberOfMatchedTokens());
+    }
+
+    private float percentB(int numberOfMatchedTokens) {
         int divisor;
         if (bcMatchesB != null) {
             divisor = secondSubmission.getNumberOfTokens() - secondSubmission.files.size()
@@ -148,13 +214,20 @@ public class JPlagComparison implements Comparator<JPlagComparison> {
         } else {
             divisor = secondSubmission.getNumberOfTokens() - secondSubmission.files.size();
         }
-        return (divisor == 0 ? 0f : (getNumberOfMatchedTokens() * 100 / (float) divisor));
+        return (divisor == 0 ? 0f : (numberOfMatchedTokens * 100 / (float) divisor));
     }
 
     // 相似度 Max
     public final float percentMaxAB() {
-        float a = percentA();
-        float b = percentB();
+        return percentMaxAB(getNumberOfMatchedTokens());
+    }
+
+    /**
+     * @return the maximum similarity of this comparison if it had the given number of matched tokens.
+     */
+    public final float percentMaxAB(int numberOfMatchedTokens) {
+        float a = percentA(numberOfMatchedTokens);
+        float b = percentB(numberOfMatchedTokens);
         if (a > b) {
             return a;
         } else {
@@ -164,8 +237,15 @@ public class JPlagComparison implements Comparator<JPlagComparison> {
 
     // 相似度 Min
     public final float percentMinAB() {
-        float a = percentA();
-        float b = percentB();
+        return percentMinAB(getNumberOfMatchedTokens());
+    }
+
+    /**
+     * @return the minimum similarity of this comparison if it had the given number of matched tokens.
+     */
+    public final float percentMinAB(int numberOfMatchedTokens) {
+        float a = percentA(numberOfMatchedTokens);
+        float b = percentB(numberOfMatchedTokens);
         if (a < b) {
             return a;
         } else {
@@ -173,7 +253,6 @@ public class JPlagComparison implements Comparator<JPlagComparison> {
         }
     }
 
-    // basecode占比
     private final float percentBasecodeA() {
         float sa = firstSubmission.getNumberOfTokens() - firstSubmission.files.size();
         return bcMatchesA.getNumberOfMatchedTokens() * 100 / sa;
@@ -203,14 +282,14 @@ public class JPlagComparison implements Comparator<JPlagComparison> {
             return new String[] {};
         }
 
-        Token[] tokens = (j == 0 ? firstSubmission : secondSubmission).tokenList.tokens;
+        TokenSequence tokens = (j == 0 ? firstSubmission : secondSubmission).getTokenSequence();
         int i, h, starti, starth, count = 1;
 
         o1: for (i = 1; i < matches.size(); i++) {
             starti = (j == 0 ? matches.get(i).startA : matches.get(i).startB);
             for (h = 0; h < i; h++) {
                 starth = (j == 0 ? matches.get(h).startA : matches.get(h).startB);
-                if (tokens[starti].file.equals(tokens[starth].file)) {
+                if (tokens.getFile(starti).equals(tokens.getFile(starth))) {
                     continue o1;
                 }
             }
@@ -218,18 +297,18 @@ public class JPlagComparison implements Comparator<JPlagComparison> {
         }
 
         String[] res = new String[count];
-        res[0] = tokens[(j == 0 ? matches.get(0).startA : matches.get(0).startB)].file;
+        res[0] = tokens.getFile(j == 0 ? matches.get(0).startA : matches.get(0).startB);
         count = 1;
 
         o2: for (i = 1; i < matches.size(); i++) {
             starti = (j == 0 ? matches.get(i).startA : matches.get(i).startB);
             for (h = 0; h < i; h++) {
                 starth = (j == 0 ? matches.get(h).startA : matches.get(h).startB);
-                if (tokens[starti].file.equals(tokens[starth].file)) {
+                if (tokens.getFile(starti).equals(tokens.getFile(starth))) {
                     continue o2;
                 }
             }
-            res[count++] = tokens[starti].file;
+            res[count++] = tokens.getFile(starti);
         }
 
         /*
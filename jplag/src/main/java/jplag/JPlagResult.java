@@ -1,6 +1,12 @@
 package jplag;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import jplag.options.JPlagOptions;
 
@@ -42,6 +48,11 @@ public class JPlagResult {
      */
     private int[] similarityDistribution = null;
 
+    /**
+     * Restores the discarded matches of comparisons, or null if no matches were discarded.
+     */
+    private GreedyStringTiling greedyStringTiling = null;
+
     /**
      * Creates empty results.
      */
@@ -50,27 +61,91 @@ public class JPlagResult {
     }
 
     public JPlagResult(List<JPlagComparison> comparisons, long durationInMillis, int numberOfSubmissions, JPlagOptions options) {
+        this(comparisons, calculateSimilarityDistribution(comparisons), durationInMillis, numberOfSubmissions, options);
+    }
+
+    /**
+     * Creates results whose similarity distribution covers more comparisons than the given ones, e.g. because only the
+     * most similar comparisons were kept.
+     */
+    public JPlagResult(List<JPlagComparison> comparisons, int[] similarityDistribution, long durationInMillis, int numberOfSubmissions,
+            JPlagOptions options) {
         this.comparisons = comparisons;
         this.durationInMillis = durationInMillis;
         this.numberOfSubmissions = numberOfSubmissions;
         this.options = options;
+        this.similarityDistribution = similarityDistribution;
+    }
+
+    /**
+     * Creates results of a run whose comparisons were passed to a {@link jplag.strategy.ComparisonSink} instead of
+     * being collected. Thus, the results contain only the similarity distribution.
+     */
+    public JPlagResult(int[] similarityDistribution, long durationInMillis, int numberOfSubmissions, JPlagOptions options) {
+        this(Collections.emptyList(), similarityDistribution, durationInMillis, numberOfSubmissions, options);
+    }
 
-        this.similarityDistribution = calculateSimilarityDistribution(comparisons);
+    /**
+     * @return the index of the interval of the similarity distribution a comparison belongs to.
+     */
+    public static int getSimilarityInterval(JPlagComparison comparison) {
+        int index = (int) (comparison.percent() / 10);
+        return index == 10 ? 9 : index;
     }
 
     /**
      * Note: Before, comparisons with a similarity below the given threshold were also included in the similarity matrix.
      * 返回高于阈值的相似度分布列表
      */
-    private int[] calculateSimilarityDistribution(List<JPlagComparison> comparisons) {
+    private static int[] calculateSimilarityDistribution(List<JPlagComparison> comparisons) {
         int[] similarityDistribution = new int[10];
 
-        comparisons.stream().map(JPlagComparison::percent).map(percent -> percent / 10).map(Float::intValue).map(index -> index == 10 ? 9 : index)
-                .forEach(index -> similarityDistribution[index]++);
+        comparisons.stream().map(JPlagResult::getSimilarityInterval).forEach(index -> similarityDistribution[index]++);
 
         return similarityDistribution;
     }
 
+    /**
+     * Allows to restore the matches of comparisons that were discarded during the run.
+     */
+    void setGreedyStringTiling(GreedyStringTiling greedyStringTiling) {
+        this.greedyStringTiling = greedyStringTiling;
+    }
+
+    /**
+     * Restores the discarded matches of the given comparisons by comparing their submissions again. The comparisons are
+     * distributed over the configured number of threads.
+     * @param comparisons are the comparisons, e.g. the ones that are shown in a report.
+     */
+    public void restoreMatches(List<JPlagComparison> comparisons) {
+        List<JPlagComparison> discarded = new ArrayList<>();
+        for (JPlagComparison comparison : comparisons) {
+            if (comparison.hasDiscardedMatches()) {
+                discarded.add(comparison);
+            }
+        }
+        if (discarded.isEmpty() || greedyStringTiling == null) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(options.getNumberOfThreads(), discarded.size()));
+        try {
+            List<Future<List<Match>>> matches = new ArrayList<>();
+            for (JPlagComparison comparison : discarded) {
+                matches.add(executor.submit(() -> greedyStringTiling.recomputeMatches(comparison)));
+            }
+            for (int i = 0; i < discarded.size(); i++) {
+                discarded.get(i).restoreMatches(matches.get(i).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while restoring matches", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Restoring matches failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     public List<JPlagComparison> getComparisons() {
         return comparisons;
     }
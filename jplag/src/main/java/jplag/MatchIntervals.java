@@ -0,0 +1,89 @@
+package jplag;
+
+import java.util.Arrays;
+
+/**
+ * Index of the token intervals that a set of matches covers in both submissions. Two matches overlap if their
+ * intervals in submission A or in submission B overlap, so the matches of a set that contains no overlapping matches
+ * cover disjoint intervals on each side. These are kept in sorted arrays, so checking a match for overlaps takes
+ * logarithmic time instead of a scan over all matches.
+ * <p>
+ * Note: This class is only used by {@link Matches} and {@link JPlagComparison} while matches are added.
+ */
+public final class MatchIntervals {
+
+    private final Side sideA = new Side();
+    private final Side sideB = new Side();
+
+    /**
+     * @return true if a match overlaps any indexed match, as defined by {@link Match#overlap(int, int, int)}.
+     */
+    public boolean overlaps(int startA, int startB, int length) {
+        return sideA.overlaps(startA, length) || sideB.overlaps(startB, length);
+    }
+
+    /**
+     * Adds a match that does not {@link #overlaps(int, int, int) overlap} the indexed matches.
+     */
+    public void add(int startA, int startB, int length) {
+        sideA.add(startA, length);
+        sideB.add(startB, length);
+    }
+
+    public int size() {
+        return sideA.size;
+    }
+
+    public void clear() {
+        sideA.size = 0;
+        sideB.size = 0;
+    }
+
+    /**
+     * Disjoint intervals of one submission, sorted by their start. Thus, their ends are sorted as well.
+     */
+    private static final class Side {
+        private int[] starts = new int[16];
+        private int[] ends = new int[16]; // exclusive
+        private int size = 0;
+
+        boolean overlaps(int start, int length) {
+            int next = findNext(start);
+            if (next > 0 && ends[next - 1] > start) {
+                return true; // the preceding interval reaches into the new one
+            }
+            return next < size && starts[next] < start + length;
+        }
+
+        void add(int start, int length) {
+            int next = findNext(start);
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, 2 * size);
+                ends = Arrays.copyOf(ends, 2 * size);
+            }
+            System.arraycopy(starts, next, starts, next + 1, size - next);
+            System.arraycopy(ends, next, ends, next + 1, size - next);
+            starts[next] = start;
+            ends[next] = start + length;
+            size++;
+        }
+
+        /* Returns the index of the first interval that starts after the given position. */
+        private int findNext(int start) {
+            if (size == 0 || starts[size - 1] <= start) {
+                return size; // tiles are mostly added in ascending order
+            }
+            int low = 0;
+            int high = size - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (starts[middle] <= start) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
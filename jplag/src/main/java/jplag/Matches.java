@@ -10,6 +10,7 @@ public class Matches {
     public Match[] matches;
 
     private int numberOfMatches;
+    private final MatchIntervals intervals = new MatchIntervals();
     private final int increment = 20;
 
     public Matches() {
@@ -41,12 +42,10 @@ public class Matches {
     }
 
     public final void addMatch(int startA, int startB, int length) {
-        for (int i = numberOfMatches - 1; i >= 0; i--) { // starting at the end is better(?)
-            if (matches[i].overlap(startA, startB, length)) {
-                return;
-            }
-            // no overlaps!
+        if (intervals.overlaps(startA, startB, length)) {
+            return;
         }
+        intervals.add(startA, startB, length);
 
         ensureCapacity(numberOfMatches + 1);
 
@@ -56,5 +55,6 @@ public class Matches {
 
     public final void clear() {
         numberOfMatches = 0;
+        intervals.clear();
     }
 }
@@ -0,0 +1,166 @@
+package jplag;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Searches the longest unmarked common substrings of one round of the hash-based tiling of {@link GreedyStringTiling}
+ * with fork/join. The positions of A are split into ranges, each of which finds its longest substrings in the order of
+ * their positions like the sequential scan. Merging two adjacent ranges keeps the longer substrings, or appends the ones
+ * of the right range if both are equally long, so the merged result is the one of the sequential scan.
+ * <p>
+ * Note: The tasks only read the tokens and marks, which must not change during the search.
+ */
+final class ParallelMatchSearch extends RecursiveTask<ParallelMatchSearch.Candidates> {
+
+    private static final long serialVersionUID = 1L;
+    private static final int RANGE_SIZE = 4096; // positions of A that are searched by one task
+
+    private final Round round;
+    private final int from;
+    private final int to;
+
+    /**
+     * Creates the search of a round over all positions of A.
+     */
+    ParallelMatchSearch(int[] A, int[] B, long[] hashesA, HashIndex indexB, TokenMarks markedA, TokenMarks markedB, int hashLength,
+            int mml) {
+        this(new Round(A, B, hashesA, indexB, markedA, markedB, hashLength, mml), 0, A.length - mml); // x <= lengthA - mml
+    }
+
+    private ParallelMatchSearch(Round round, int from, int to) {
+        this.round = round;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected Candidates compute() {
+        if (to - from <= RANGE_SIZE) {
+            return round.search(from, to);
+        }
+        int middle = (from + to) >>> 1;
+        ParallelMatchSearch left = new ParallelMatchSearch(round, from, middle);
+        left.fork();
+        Candidates right = new ParallelMatchSearch(round, middle, to).compute();
+        return left.join().merge(right);
+    }
+
+    /**
+     * The longest common substrings of a range of positions in A, in the order of their positions in A and B.
+     */
+    static final class Candidates {
+        int length;
+        private long[] positions = new long[16]; // start in A in the upper half, start in B in the lower half
+        private int size = 0;
+        int hits = 0;
+        int falseHits = 0;
+
+        Candidates(int mml) {
+            length = mml;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int startA(int index) {
+            return (int) (positions[index] >>> 32);
+        }
+
+        int startB(int index) {
+            return (int) positions[index];
+        }
+
+        void add(int startA, int startB, int length) {
+            if (length > this.length) {  // new biggest match? -> delete current smaller
+                size = 0;
+                this.length = length;
+            }
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, 2 * size);
+            }
+            positions[size++] = ((long) startA << 32) | startB;
+        }
+
+        /* Merges the candidates of the following range into these ones. */
+        Candidates merge(Candidates following) {
+            following.hits += hits;
+            following.falseHits += falseHits;
+            if (following.length > length || size == 0) {
+                return following;
+            }
+            hits = following.hits;
+            falseHits = following.falseHits;
+            if (following.length == length) {
+                for (int i = 0; i < following.size; i++) {
+                    add(following.startA(i), following.startB(i), length);
+                }
+            }
+            return this;
+        }
+    }
+
+    /**
+     * The read-only state of a round that all tasks share.
+     */
+    private static final class Round {
+        private final int[] A;
+        private final int[] B;
+        private final long[] hashesA;
+        private final HashIndex indexB;
+        private final TokenMarks markedA;
+        private final TokenMarks markedB;
+        private final int hashLength;
+        private final int mml;
+
+        Round(int[] A, int[] B, long[] hashesA, HashIndex indexB, TokenMarks markedA, TokenMarks markedB, int hashLength, int mml) {
+            this.A = A;
+            this.B = B;
+            this.hashesA = hashesA;
+            this.indexB = indexB;
+            this.markedA = markedA;
+            this.markedB = markedB;
+            this.hashLength = hashLength;
+            this.mml = mml;
+        }
+
+        /* Same scan as the sequential round of the tiling, restricted to the positions from, ..., to - 1 of A. */
+        Candidates search(int from, int to) {
+            int lengthA = A.length - 1;  // minus pivots!
+            int lengthB = B.length - 1;  // minus pivots!
+            Candidates candidates = new Candidates(mml);
+            int groupB;
+            for (int x = from; x < to && x <= lengthA - candidates.length; x++) {
+                if (markedA.isMarked(x) || hashesA[x] == HashIndex.NO_HASH || (groupB = indexB.find(hashesA[x])) == -1) {
+                    continue;
+                }
+                inner: for (int i = indexB.start(groupB), end = indexB.end(groupB); i < end; i++) {
+                    int y = indexB.position(i);
+                    if (markedB.isMarked(y) || candidates.length > lengthB - y) {
+                        continue;
+                    }
+                    candidates.hits++;
+
+                    int j, hx, hy;
+                    for (j = candidates.length - 1; j >= 0; j--) { // begins comparison from behind
+                        if (A[hx = x + j] != B[hy = y + j] || markedA.isMarked(hx) || markedB.isMarked(hy)) {
+                            if (j < hashLength && A[hx] != B[hy]) {
+                                candidates.falseHits++; // equal hashes of different tokens
+                            }
+                            continue inner;
+                        }
+                    }
+
+                    // expand match
+                    j = candidates.length;
+                    while (A[hx = x + j] == B[hy = y + j] && !markedA.isMarked(hx) && !markedB.isMarked(hy)) {
+                        j++;
+                    }
+                    candidates.add(x, y, j);
+                }
+            }
+            return candidates;
+        }
+    }
+}
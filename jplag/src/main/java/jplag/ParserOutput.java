@@ -0,0 +1,34 @@
+package jplag;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Collects the errors and messages of a language instance while it parses submissions concurrently. The collected
+ * messages are reported later on, in the order of the submissions.
+ */
+class ParserOutput implements ProgramI {
+
+    private List<Consumer<ProgramI>> messages = new ArrayList<>();
+
+    @Override
+    public void addError(String errorMessage) {
+        messages.add(program -> program.addError(errorMessage));
+    }
+
+    @Override
+    public void print(String message, String longMessage) {
+        messages.add(program -> program.print(message, longMessage));
+    }
+
+    /**
+     * Removes the messages collected so far.
+     * @return the removed messages, which report themselves to a given program.
+     */
+    List<Consumer<ProgramI>> takeMessages() {
+        List<Consumer<ProgramI>> collectedMessages = messages;
+        messages = new ArrayList<>();
+        return collectedMessages;
+    }
+}
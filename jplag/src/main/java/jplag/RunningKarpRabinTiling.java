@@ -0,0 +1,305 @@
+package jplag;
+
+import java.util.Arrays;
+
+/**
+ * Tiling engine that follows the Running-Karp-Rabin Greedy String Tiling by Michael Wise. Each scan hashes the unmarked
+ * windows of a search length s in both submissions and records the maximal common substrings of at least s tokens as
+ * diagonal segments. All rounds whose longest substrings have at least s tokens are then tiled from these segments,
+ * which are split where tokens were marked, without another scan. If a scan finds substrings of more than twice the
+ * search length, it is repeated with their length, as long substrings are found with fewer hash hits. Otherwise, the
+ * search length is halved down to the minimum match length.
+ * <p>
+ * Highly similar pairs thus need a few scans instead of one pass over A per tile length, while the tiles are the same
+ * as the ones of the hash-based engine of {@link GreedyStringTiling}.
+ * @see <a href=
+ * "https://www.researchgate.net/publication/262763983_String_Similarity_via_Greedy_String_Tiling_and_Running_Karp-Rabin_Matching">
+ * String Similarity via Greedy String Tiling and Running Karp−Rabin Matching </a>
+ */
+public final class RunningKarpRabinTiling implements TilingEngine {
+
+    private static final int INITIAL_SEARCH_LENGTH_FACTOR = 4; // of the minimum match length
+
+    // Scratch space of the comparisons, confined to the comparing thread. This allows concurrent comparisons.
+    private final ThreadLocal<Scan> scans = ThreadLocal.withInitial(Scan::new);
+
+    @Override
+    public JPlagComparison compare(Submission subA, Submission subB, int minimumMatchLength, int minimumMatchedTokens) {
+        int mml = Math.max(1, minimumMatchLength);
+        int lengthA = subA.getTokenSequence().size() - 1;  // minus pivots!
+        int lengthB = subB.getTokenSequence().size() - 1;  // minus pivots!
+        JPlagComparison comparison = new JPlagComparison(subA, subB);
+
+        if (lengthA < minimumMatchLength || lengthB < minimumMatchLength) {
+            return comparison;
+        }
+
+        Scan scan = scans.get();
+        scan.reset(subA, subB);
+        boolean bounded = (minimumMatchedTokens > 0);
+        if (bounded && scan.countMatchableTokens(mml) < minimumMatchedTokens) {
+            return null;
+        }
+        int searchLength = INITIAL_SEARCH_LENGTH_FACTOR * mml;
+        while (true) {
+            int maxmatch = scan.findSegments(searchLength);
+            if (maxmatch > 2 * searchLength) {
+                searchLength = maxmatch; // scan again with fewer hash hits
+                continue;
+            }
+            if (!scan.tileSegments(searchLength, comparison, minimumMatchedTokens)) {
+                return null;
+            }
+            if (searchLength == mml) {
+                break;
+            }
+            searchLength = Math.max(mml, searchLength / 2);
+        }
+
+        comparison.releaseMatchIntervals();
+        if (minimumMatchedTokens > 0 && comparison.getNumberOfMatchedTokens() < minimumMatchedTokens) {
+            return null;
+        }
+        return comparison;
+    }
+
+    /**
+     * Marks of a comparison and the maximal unmarked common substrings of the last scan. A substring is stored as a
+     * segment of a diagonal: its start in A and B and its length. The buffers are reused by the next comparison of the
+     * same thread.
+     */
+    private static final class Scan {
+        private int[] typesA;
+        private int[] typesB;
+        private final TokenMarks markedA = new TokenMarks(0);
+        private final TokenMarks markedB = new TokenMarks(0);
+        private long[] hashesA = new long[0];
+        private long[] hashesB = new long[0];
+        private HashIndex indexB; // of the windows of B of the minimum match length, if the bound was computed
+        private int indexedSearchLength;
+        private final Matches matches = new Matches();
+        private long[] round = new long[16];
+        private int[] startsA = new int[16];
+        private int[] startsB = new int[16];
+        private int[] lengths = new int[16];
+        private int[] oldStartsA = new int[16];
+        private int[] oldStartsB = new int[16];
+        private int[] oldLengths = new int[16];
+        private int numberOfSegments;
+        private int matchableA; // unmarked tokens of A that can still be part of a tile
+        private int matchableB; // unmarked tokens of B that can still be part of a tile
+
+        /**
+         * Prepares the scan for the comparison of two submissions.
+         */
+        void reset(Submission subA, Submission subB) {
+            typesA = subA.getTokenSequence().getTypes();
+            typesB = subB.getTokenSequence().getTypes();
+            markedA.copyFrom(subA.getExcludedTokens());
+            markedB.copyFrom(subB.getExcludedTokens());
+            if (hashesA.length < typesA.length) {
+                hashesA = new long[typesA.length];
+            }
+            if (hashesB.length < typesB.length) {
+                hashesB = new long[typesB.length];
+            }
+            indexB = null;
+            numberOfSegments = 0;
+        }
+
+        /**
+         * Counts the unmarked tokens of A and B that lie in at least one window of the minimum match length whose hash
+         * occurs in the other submission. Only these tokens can be part of a tile, so their smaller number bounds the
+         * matched tokens.
+         * @return the smaller number of matchable tokens.
+         */
+        int countMatchableTokens(int mml) {
+            hashWindows(typesA, markedA, mml, hashesA);
+            hashWindows(typesB, markedB, mml, hashesB);
+            HashIndex indexA = new HashIndex(hashesA, typesA.length);
+            indexB = new HashIndex(hashesB, typesB.length);
+            indexedSearchLength = mml;
+            matchableA = countMatchableTokens(hashesA, typesA.length, mml, indexB);
+            matchableB = countMatchableTokens(hashesB, typesB.length, mml, indexA);
+            return Math.min(matchableA, matchableB);
+        }
+
+        /**
+         * Finds the maximal unmarked common substrings of at least the search length.
+         * @return the length of the longest one, 0 if there is none.
+         */
+        int findSegments(int searchLength) {
+            numberOfSegments = 0;
+            if (!hashWindows(typesA, markedA, searchLength, hashesA)) {
+                return 0;
+            }
+            // the index of the bound is reused for its search length, but tiles may have been marked since:
+            boolean staleIndex = (indexB != null && indexedSearchLength == searchLength);
+            HashIndex index = indexB;
+            if (!staleIndex) {
+                hashWindows(typesB, markedB, searchLength, hashesB);
+                index = new HashIndex(hashesB, typesB.length);
+            }
+            int maxmatch = 0;
+            int groupB;
+            for (int x = 0; x < typesA.length; x++) {
+                if (hashesA[x] == HashIndex.NO_HASH || (groupB = index.find(hashesA[x])) == -1) {
+                    continue;
+                }
+                inner: for (int i = index.start(groupB), end = index.end(groupB); i < end; i++) {
+                    int y = index.position(i);
+                    if (x > 0 && y > 0 && typesA[x - 1] == typesB[y - 1] && !markedA.isMarked(x - 1) && !markedB.isMarked(y - 1)) {
+                        continue; // not the start of the substring, which was found before
+                    }
+                    if (staleIndex && markedB.nextMarked(y, y + searchLength) < y + searchLength) {
+                        continue; // the window of B was marked after it was indexed
+                    }
+                    for (int j = 0; j < searchLength; j++) {
+                        if (typesA[x + j] != typesB[y + j]) {
+                            continue inner; // equal hashes of different tokens
+                        }
+                    }
+                    int j = searchLength;
+                    while (typesA[x + j] == typesB[y + j] && !markedA.isMarked(x + j) && !markedB.isMarked(y + j)) {
+                        j++;
+                    }
+                    addSegment(x, y, j);
+                    maxmatch = Math.max(maxmatch, j);
+                }
+            }
+            return maxmatch;
+        }
+
+        /**
+         * Tiles all rounds whose longest unmarked common substrings have at least the search length. The segments of the
+         * last scan contain all of these substrings.
+         * @return false if the comparison cannot match the given number of tokens anymore.
+         */
+        boolean tileSegments(int searchLength, JPlagComparison comparison, int minimumMatchedTokens) {
+            while (numberOfSegments > 0) {
+                int maxmatch = 0;
+                for (int i = 0; i < numberOfSegments; i++) {
+                    maxmatch = Math.max(maxmatch, lengths[i]);
+                }
+                int numberOfTiles = 0;
+                for (int i = 0; i < numberOfSegments; i++) {
+                    if (lengths[i] == maxmatch) {
+                        if (numberOfTiles == round.length) {
+                            round = Arrays.copyOf(round, 2 * numberOfTiles);
+                        }
+                        round[numberOfTiles++] = ((long) startsA[i] << 32) | startsB[i];
+                    }
+                }
+                // tile them in the order of the hash-based engine:
+                Arrays.sort(round, 0, numberOfTiles);
+                matches.clear();
+                for (int i = 0; i < numberOfTiles; i++) {
+                    matches.addMatch((int) (round[i] >>> 32), (int) round[i], maxmatch);
+                }
+                for (int i = matches.size() - 1; i >= 0; i--) {
+                    Match match = matches.matches[i];
+                    comparison.addMatch(match.startA, match.startB, match.length);
+                    markedA.markRange(match.startA, match.length);
+                    markedB.markRange(match.startB, match.length);
+                    matchableA -= match.length; // the tiles were unmarked and matchable
+                    matchableB -= match.length;
+                }
+                if (minimumMatchedTokens > 0
+                        && comparison.getNumberOfMatchedTokens() + Math.min(matchableA, matchableB) < minimumMatchedTokens) {
+                    return false;
+                }
+                splitSegments(searchLength);
+            }
+            return true;
+        }
+
+        /* Splits the segments at marked tokens and drops the parts that are shorter than the search length. */
+        private void splitSegments(int searchLength) {
+            // swap the buffers of the old and the new segments:
+            int[] swap = oldStartsA;
+            oldStartsA = startsA;
+            startsA = swap;
+            swap = oldStartsB;
+            oldStartsB = startsB;
+            startsB = swap;
+            swap = oldLengths;
+            oldLengths = lengths;
+            lengths = swap;
+            int oldNumberOfSegments = numberOfSegments;
+            numberOfSegments = 0;
+            for (int i = 0; i < oldNumberOfSegments; i++) {
+                int x = oldStartsA[i];
+                int diagonal = oldStartsB[i] - x;
+                int end = x + oldLengths[i];
+                while (x < end) {
+                    int next = Math.min(markedA.nextMarked(x, end), markedB.nextMarked(x + diagonal, end + diagonal) - diagonal);
+                    if (next - x >= searchLength) {
+                        addSegment(x, x + diagonal, next - x);
+                    }
+                    x = next + 1;
+                }
+            }
+        }
+
+        private void addSegment(int startA, int startB, int length) {
+            if (numberOfSegments == lengths.length) {
+                startsA = Arrays.copyOf(startsA, 2 * numberOfSegments);
+                startsB = Arrays.copyOf(startsB, 2 * numberOfSegments);
+                lengths = Arrays.copyOf(lengths, 2 * numberOfSegments);
+            }
+            startsA[numberOfSegments] = startA;
+            startsB[numberOfSegments] = startB;
+            lengths[numberOfSegments] = length;
+            numberOfSegments++;
+        }
+
+        /**
+         * Hashes the windows of a search length that contain no marked token, like
+         * {@link GreedyStringTiling#createHashes(TokenSequence, int, boolean)}. All other windows get no hash. Only the
+         * first types.length hashes are written.
+         * @return true if at least one window was hashed.
+         */
+        private static boolean hashWindows(int[] types, TokenMarks marks, int searchLength, long[] hashes) {
+            Arrays.fill(hashes, 0, types.length, HashIndex.NO_HASH);
+            long factor = 1; // HASH_BASE^(searchLength - 1), the weight of the oldest token
+            for (int i = 1; i < searchLength; i++) {
+                factor *= GreedyStringTiling.HASH_BASE;
+            }
+            boolean hashed = false;
+            long hash = 0;
+            int unmarkedLength = 0;
+            for (int i = 0; i < types.length; i++) {
+                if (marks.isMarked(i)) {
+                    hash = 0;
+                    unmarkedLength = 0;
+                    continue;
+                }
+                if (unmarkedLength == searchLength) {
+                    hash -= factor * types[i - searchLength];
+                } else {
+                    unmarkedLength++;
+                }
+                hash = (GreedyStringTiling.HASH_BASE * hash) + types[i];
+                if (unmarkedLength == searchLength) {
+                    hashes[i - searchLength + 1] = (hash != HashIndex.NO_HASH ? hash : hash + 1);
+                    hashed = true;
+                }
+            }
+            return hashed;
+        }
+
+        /* Counts the tokens that lie in at least one window whose hash occurs in the other token list. */
+        private static int countMatchableTokens(long[] hashes, int length, int windowLength, HashIndex otherIndex) {
+            int count = 0;
+            int coveredUntil = 0;
+            for (int x = 0; x < length; x++) {
+                if (hashes[x] == HashIndex.NO_HASH || otherIndex.find(hashes[x]) == -1) {
+                    continue;
+                }
+                count += x + windowLength - Math.max(x, coveredUntil); // the windows contain no marked token
+                coveredUntil = x + windowLength;
+            }
+            return count;
+        }
+    }
+}
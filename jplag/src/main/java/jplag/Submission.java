@@ -14,7 +14,9 @@ import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 import jplag.options.Verbosity;
@@ -45,12 +47,33 @@ public class Submission implements Comparable<Submission> {
      */
     public Structure tokenList;
 
+    /**
+     * Primitive view of the token list, used by the comparison algorithm.
+     */
+    private TokenSequence tokenSequence;
+
+    /**
+     * Tokens of the token list that are never part of a match: file ends, separators, and tokens that match the base
+     * code.
+     */
+    private TokenMarks excludedTokens;
+
+    /**
+     * Number of tokens of every type that are not excluded, indexed by token type.
+     */
+    private int[] tokenHistogram;
+
     /**
      * True, if at least one error occurred while parsing this submission; false otherwise.
      * True，如果解析此提交时至少发生了一个错误;否则false。
      */
     public boolean hasErrors = false;
 
+    /**
+     * True, if this submission was found in the directory of new submissions; false otherwise.
+     */
+    private boolean isNew = false;
+
     private final JPlag program;
     //有参构造
     public Submission(String name, File submissionFile, JPlag program) {
@@ -98,6 +121,17 @@ public class Submission implements Comparable<Submission> {
 
         return files;
     }
+    /**
+     * @return true if this submission was found in the directory of new submissions.
+     */
+    public boolean isNew() {
+        return isNew;
+    }
+
+    void markAsNew() {
+        isNew = true;
+    }
+
     //返回保存token数组的长度（size()方法在jplag.frontend-utils模块中，下表从0开始）
     public int getNumberOfTokens() {
         if (tokenList == null) {
@@ -107,6 +141,28 @@ public class Submission implements Comparable<Submission> {
         return tokenList.size();
     }
 
+    /**
+     * @return the primitive view of the token list, which is created after parsing.
+     */
+    public TokenSequence getTokenSequence() {
+        return tokenSequence;
+    }
+
+    /**
+     * @return the tokens of the token list that are never part of a match.
+     */
+    public TokenMarks getExcludedTokens() {
+        return excludedTokens;
+    }
+
+    /**
+     * @return the number of tokens of every type that can be part of a match, indexed by token type. The array must not
+     * be modified.
+     */
+    public int[] getTokenHistogram() {
+        return tokenHistogram;
+    }
+
     //对提交的文件和当前文件进行比较，返回一个整数，判断当前文件在集合中的位置是在另一个文件之前、之后还是与其位置相同。
     @Override
     public int compareTo(Submission other) {
@@ -142,25 +198,39 @@ public class Submission implements Comparable<Submission> {
 
     /* parse all the files... 解析所有文件...*/
     public boolean parse() {
+        return parse(program.getLanguage(), program);
+    }
+
+    /**
+     * Parses the files of this submission with a given language instance. Submissions can be parsed concurrently, if
+     * each thread uses its own language instance.
+     * @param language is the language instance used for parsing.
+     * @param output receives the messages about this submission.
+     * @return true if the submission was parsed successfully.
+     */
+    public boolean parse(Language language, ProgramI output) {
         if (program.getOptions().getVerbosity() != Verbosity.PARSER) {
             //文件为空或者集合列表files中的文件个数为空，则打印输出错误信息+文件名
             if (files == null || files.size() == 0) {
-                program.print("ERROR: nothing to parse for submission \"" + name + "\"\n", null);
+                output.print("ERROR: nothing to parse for submission \"" + name + "\"\n", null);
                 return false;
             }
         }
         //保存提交的文件和files数组中的文件路径到 relativeFilePaths数组中
         String[] relativeFilePaths = getRelativeFilePaths(submissionFile, files);
         //解析目录中的集合文件生成token，保存在 tokenList中
-        tokenList = this.program.getLanguage().parse(submissionFile, relativeFilePaths);
+        tokenList = parseFiles(language, relativeFilePaths);
         //判断文件语言是否符合，在判断生成的token列表的长度，若小于3，则打印输出 Submission name is too short!
-        if (!program.getLanguage().errors()) {
+        if (tokenList != null) {
             if (tokenList.size() < 3) {
-                program.print("Submission \"" + name + "\" is too short!\n", null);
+                output.print("Submission \"" + name + "\" is too short!\n", null);
                 tokenList = null; //在赋空值给tokenList
                 hasErrors = true; // invalidate submission  文件提交无效
                 return false;
             }
+            tokenSequence = new TokenSequence(tokenList);
+            markPivotTokens();
+            updateTokenHistogram();
             return true;
         }
 
@@ -168,11 +238,104 @@ public class Submission implements Comparable<Submission> {
         hasErrors = true; // invalidate submission
         //如果为true(默认是false)，执行copySubmission()放法，此方法将无法解析提交文件将存储在单独的目录中，
         if (program.getOptions().isDebugParser()) {
-            copySubmission();
+            copySubmission(output);
         }
         return false;
     }
 
+    /**
+     * Parses the given files, or loads their tokens from the token cache if it is used. Only the files without cache
+     * entry are passed to the frontend, and their tokens are stored in the cache if they were parsed without errors.
+     * @return the tokens of all files in the given order, or null if errors occurred.
+     */
+    private Structure parseFiles(Language language, String[] relativeFilePaths) {
+        TokenCache tokenCache = program.getTokenCache();
+        if (tokenCache == null) {
+            return parseAllFiles(language, relativeFilePaths);
+        }
+        String[] keys = new String[relativeFilePaths.length];
+        List<List<Token>> tokensOfFiles = new ArrayList<>();
+        List<String> uncachedFiles = new ArrayList<>();
+        for (int i = 0; i < relativeFilePaths.length; i++) {
+            List<Token> tokens = null;
+            try {
+                keys[i] = tokenCache.getKey(files.get(i));
+                tokens = tokenCache.load(keys[i], relativeFilePaths[i]);
+            } catch (IOException e) {
+                // the file is passed to the frontend, which reports the error
+            }
+            tokensOfFiles.add(tokens);
+            if (tokens == null) {
+                uncachedFiles.add(relativeFilePaths[i]);
+            }
+        }
+
+        if (!uncachedFiles.isEmpty()) {
+            Structure parsedTokens = language.parse(submissionFile, uncachedFiles.toArray(new String[0]));
+            if (language.errors()) {
+                return null;
+            }
+            Map<String, List<Token>> tokensOfParsedFiles = new HashMap<>();
+            for (String fileName : uncachedFiles) {
+                tokensOfParsedFiles.put(fileName, new ArrayList<>());
+            }
+            for (int i = 0; i < parsedTokens.size(); i++) {
+                List<Token> tokens = tokensOfParsedFiles.get(parsedTokens.tokens[i].file);
+                if (tokens == null) {
+                    return parseAllFiles(language, relativeFilePaths); // the tokens cannot be assigned to their files
+                }
+                tokens.add(parsedTokens.tokens[i]);
+            }
+            for (int i = 0; i < relativeFilePaths.length; i++) {
+                if (tokensOfFiles.get(i) == null) {
+                    List<Token> tokens = tokensOfParsedFiles.get(relativeFilePaths[i]);
+                    tokensOfFiles.set(i, tokens);
+                    if (keys[i] != null) {
+                        tokenCache.store(keys[i], tokens);
+                    }
+                }
+            }
+        }
+
+        Structure structure = new Structure();
+        for (List<Token> tokens : tokensOfFiles) {
+            tokens.forEach(structure::addToken);
+        }
+        return structure;
+    }
+
+    /* Parses all given files with the frontend. Returns null if errors occurred. */
+    private Structure parseAllFiles(Language language, String[] relativeFilePaths) {
+        Structure structure = language.parse(submissionFile, relativeFilePaths);
+        return (language.errors() ? null : structure);
+    }
+
+    /* File ends and separators are excluded from all comparisons. */
+    private void markPivotTokens() {
+        excludedTokens = new TokenMarks(tokenSequence.size());
+        for (int i = 0; i < tokenSequence.size(); i++) {
+            if (GreedyStringTiling.isPivot(tokenSequence.getType(i))) {
+                excludedTokens.mark(i);
+            }
+        }
+    }
+
+    /* Counts the tokens that are not excluded. Has to be called whenever the excluded tokens change. */
+    void updateTokenHistogram() {
+        int[] types = tokenSequence.getTypes();
+        int maximumType = 0;
+        for (int type : types) {
+            maximumType = Math.max(maximumType, type);
+        }
+        int[] histogram = new int[maximumType + 1];
+        for (int i = 0; i < types.length; i++) {
+            if (!excludedTokens.isMarked(i)) {
+                histogram[types[i]]++;
+            }
+        }
+        tokenHistogram = histogram;
+    }
+
     /**
      * Used by the "Report" class. All source files are returned as an array of an array of strings.
      * 由“Report”类使用。所有源文件都以字符串数组的数组的形式返回。
@@ -261,7 +424,7 @@ public class Submission implements Comparable<Submission> {
      * 此方法用于将不能解析的文件复制到一个特殊文件夹:jplag/errors/java old_java scheme cpp
      * / 001 /(文件…)/ 002 /文件(……)
      */
-    private void copySubmission() {
+    private void copySubmission(ProgramI output) {
         File errorDir = null;
         DecimalFormat format = new DecimalFormat("0000");
 
@@ -281,19 +444,21 @@ public class Submission implements Comparable<Submission> {
         int i = 0;
         File destDir;
 
-        while ((destDir = new File(errorDir, format.format(i))).exists()) {
-            i++;
-        }
+        synchronized (Submission.class) { // submissions may be parsed concurrently
+            while ((destDir = new File(errorDir, format.format(i))).exists()) {
+                i++;
+            }
 
-        destDir.mkdir();
+            destDir.mkdir();
+        }
 
         for (i = 0; i < files.size(); i++) {
-            copyFile(new File(files.get(i).getAbsolutePath()), new File(destDir, files.get(i).getName()));
+            copyFile(new File(files.get(i).getAbsolutePath()), new File(destDir, files.get(i).getName()), output);
         }
     }
 
     /* Physical copy. :-) 复制文件 */
-    private void copyFile(File in, File out) {
+    private void copyFile(File in, File out, ProgramI output) {
         byte[] buffer = new byte[10000];
         try {
             FileInputStream dis = new FileInputStream(in);
@@ -308,7 +473,7 @@ public class Submission implements Comparable<Submission> {
             dis.close();
             dos.close();
         } catch (IOException e) {
-            program.print("Error copying file: " + e.toString() + "\n", null);
+            output.print("Error copying file: " + e.toString() + "\n", null);
         }
     }
 }
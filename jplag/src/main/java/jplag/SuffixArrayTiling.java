@@ -0,0 +1,465 @@
+package jplag;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Tiling engine for very large submissions, which finds the common substrings of both submissions with a suffix array
+ * instead of rescanning A in every round. A suffix array with the longest common prefixes (LCP) of neighboring suffixes
+ * is built once over the concatenation of A and B. The length of the longest unmarked common substring at a position x
+ * of A is the LCP of x with the suffixes of B, limited by the distance of x and of the B position to the next marked
+ * token. The LCPs only shrink with the distance in the suffix array, so the search around x stops early.
+ * <p>
+ * The positions of A are kept in buckets by an upper bound of their longest unmarked common substring, which only
+ * shrinks as tokens are marked. Each round verifies the positions of the highest bucket until the longest substrings
+ * of the round are found. Thus, positions without long matches are rarely visited again, while the tiles are the same
+ * as the ones of the hash-based engine of {@link GreedyStringTiling}.
+ */
+public final class SuffixArrayTiling implements TilingEngine {
+
+    private static final int VERIFICATIONS_PER_TASK = 512;
+
+    private final ForkJoinPool pool;
+
+    public SuffixArrayTiling() {
+        this(null);
+    }
+
+    /**
+     * Creates an engine that verifies the positions of each bucket concurrently.
+     * @param pool runs the verifications, null to verify sequentially.
+     */
+    public SuffixArrayTiling(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public JPlagComparison compare(Submission subA, Submission subB, int minimumMatchLength, int minimumMatchedTokens) {
+        int mml = minimumMatchLength;
+        TokenSequence sequenceA = subA.getTokenSequence();
+        TokenSequence sequenceB = subB.getTokenSequence();
+        int sizeA = sequenceA.size();
+        int lengthA = sizeA - 1;  // minus pivots!
+        int lengthB = sequenceB.size() - 1;  // minus pivots!
+        JPlagComparison comparison = new JPlagComparison(subA, subB);
+
+        if (lengthA < mml || lengthB < mml) {
+            return comparison;
+        }
+
+        Search search = new Search(sequenceA.getTypes(), sequenceB.getTypes(), subA.getExcludedTokens(), subB.getExcludedTokens());
+        Matches matches = new Matches();
+        int[] collected = new int[16];
+        int level = search.initializeBuckets(mml);
+        boolean bounded = (minimumMatchedTokens > 0);
+        if (bounded && Math.min(search.matchableA, search.matchableB) < minimumMatchedTokens) {
+            return null;
+        }
+        while (level >= mml) {
+            // find the positions of A with the longest unmarked common substrings:
+            int numberOfCollected = 0;
+            while (numberOfCollected == 0 && level >= mml) {
+                int size = search.verifyBucket(level, mml, pool);
+                if (size == 0) {
+                    level--;
+                    continue;
+                }
+                for (int i = 0; i < size; i++) {
+                    int x = search.bucket[i];
+                    int length = search.lengths[i];
+                    if (length == level) {
+                        if (numberOfCollected == collected.length) {
+                            collected = Arrays.copyOf(collected, 2 * numberOfCollected);
+                        }
+                        collected[numberOfCollected++] = x;
+                    } else if (length >= mml) {
+                        search.push(x, length);
+                    }
+                }
+            }
+            if (numberOfCollected == 0) {
+                break;
+            }
+
+            // tile them in the order of the hash-based engine:
+            Arrays.sort(collected, 0, numberOfCollected);
+            matches.clear();
+            for (int i = 0; i < numberOfCollected; i++) {
+                for (int y : search.matchesOf(collected[i], level)) {
+                    matches.addMatch(collected[i], y, level);
+                }
+            }
+            for (int i = matches.size() - 1; i >= 0; i--) {
+                Match match = matches.matches[i];
+                comparison.addMatch(match.startA, match.startB, match.length);
+                search.markedA.markRange(match.startA, match.length);
+                search.markedB.markRange(match.startB, match.length);
+                search.matchableA -= match.length; // the tiles were unmarked and matchable
+                search.matchableB -= match.length;
+            }
+            if (bounded && comparison.getNumberOfMatchedTokens() + Math.min(search.matchableA, search.matchableB) < minimumMatchedTokens) {
+                return null;
+            }
+            // the other positions of the round match less now:
+            for (int i = 0; i < numberOfCollected; i++) {
+                if (level - 1 >= mml) {
+                    search.push(collected[i], level - 1);
+                }
+            }
+            level--;
+        }
+
+        comparison.releaseMatchIntervals();
+        if (minimumMatchedTokens > 0 && comparison.getNumberOfMatchedTokens() < minimumMatchedTokens) {
+            return null;
+        }
+        return comparison;
+    }
+
+    /**
+     * Suffix array of the concatenation of A and B with the marks of a comparison, and the buckets of the positions of A.
+     */
+    private static final class Search {
+        private final int sizeA;
+        private final int sizeB;
+        private final int[] suffixArray;
+        private final int[] ranks; // inverse of the suffix array
+        private final int[] lcp; // lcp[r] is the LCP of the suffixes at the ranks r - 1 and r
+        private final TokenMarks markedA;
+        private final TokenMarks markedB;
+        private int[] heads; // first position of A of each bucket
+        private int[] next; // next position of A in the same bucket
+        private int[] positions = new int[16]; // buffer for the matches of a position of A
+        private int[] bucket = new int[16]; // positions of the bucket that is verified
+        private int[] lengths = new int[16]; // their longest unmarked common substrings
+        private int matchableA; // unmarked tokens of A that can still be part of a tile
+        private int matchableB; // unmarked tokens of B that can still be part of a tile
+
+        Search(int[] typesA, int[] typesB, TokenMarks excludedA, TokenMarks excludedB) {
+            sizeA = typesA.length;
+            sizeB = typesB.length;
+            int[] text = new int[sizeA + sizeB];
+            System.arraycopy(typesA, 0, text, 0, sizeA);
+            System.arraycopy(typesB, 0, text, sizeA, sizeB);
+            suffixArray = buildSuffixArray(text);
+            ranks = new int[text.length];
+            for (int r = 0; r < text.length; r++) {
+                ranks[suffixArray[r]] = r;
+            }
+            lcp = buildLcpArray(text, suffixArray, ranks);
+            markedA = new TokenMarks(sizeA);
+            markedA.copyFrom(excludedA);
+            markedB = new TokenMarks(sizeB);
+            markedB.copyFrom(excludedB);
+        }
+
+        /**
+         * Puts every position of A into the bucket of the longest common substring with B that starts there, and counts
+         * the matchable tokens of both submissions.
+         * @return the highest non-empty bucket.
+         */
+        int initializeBuckets(int mml) {
+            int n = suffixArray.length;
+            int[] boundsA = new int[sizeA];
+            int[] boundsB = new int[sizeB];
+            int runOfA = 0; // LCP with the nearest preceding suffix of A
+            int runOfB = 0; // LCP with the nearest preceding suffix of B
+            for (int r = 1; r < n; r++) {
+                boolean previousOfA = suffixArray[r - 1] < sizeA;
+                runOfA = (previousOfA ? lcp[r] : Math.min(runOfA, lcp[r]));
+                runOfB = (previousOfA ? Math.min(runOfB, lcp[r]) : lcp[r]);
+                int position = suffixArray[r];
+                if (position < sizeA) {
+                    boundsA[position] = runOfB;
+                } else {
+                    boundsB[position - sizeA] = runOfA;
+                }
+            }
+            runOfA = 0; // LCP with the nearest following suffix of A
+            runOfB = 0; // LCP with the nearest following suffix of B
+            for (int r = n - 2; r >= 0; r--) {
+                boolean followingOfA = suffixArray[r + 1] < sizeA;
+                runOfA = (followingOfA ? lcp[r + 1] : Math.min(runOfA, lcp[r + 1]));
+                runOfB = (followingOfA ? Math.min(runOfB, lcp[r + 1]) : lcp[r + 1]);
+                int position = suffixArray[r];
+                if (position < sizeA) {
+                    boundsA[position] = Math.max(boundsA[position], runOfB);
+                } else {
+                    boundsB[position - sizeA] = Math.max(boundsB[position - sizeA], runOfA);
+                }
+            }
+            int maximumBound = 0;
+            for (int x = 0; x < sizeA; x++) {
+                boundsA[x] = (boundsA[x] < mml ? 0 : runA(x, boundsA[x]));
+                maximumBound = Math.max(maximumBound, boundsA[x]);
+            }
+            for (int y = 0; y < sizeB; y++) {
+                boundsB[y] = (boundsB[y] < mml ? 0 : markedB.nextMarked(y, Math.min(y + boundsB[y], sizeB)) - y);
+            }
+            matchableA = countMatchableTokens(boundsA, mml);
+            matchableB = countMatchableTokens(boundsB, mml);
+            heads = new int[maximumBound + 1];
+            Arrays.fill(heads, -1);
+            next = new int[sizeA];
+            for (int x = sizeA - 1; x >= 0; x--) {
+                if (boundsA[x] >= mml) {
+                    push(x, boundsA[x]);
+                }
+            }
+            return maximumBound;
+        }
+
+        /* Counts the tokens that lie in an unmarked common substring of at least the minimum match length. */
+        private static int countMatchableTokens(int[] bounds, int mml) {
+            int count = 0;
+            int coveredUntil = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                if (bounds[i] >= mml && i + bounds[i] > coveredUntil) {
+                    count += i + bounds[i] - Math.max(i, coveredUntil);
+                    coveredUntil = i + bounds[i];
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Removes all positions from a bucket and determines the length of their longest unmarked common substring, at
+         * most the bound of the bucket. Marked positions get the length 0. The verifications only read the marks, so
+         * they run concurrently if there are many.
+         * @return the number of positions, which are stored in {@link #bucket} with their lengths in {@link #lengths}.
+         */
+        int verifyBucket(int bound, int mml, ForkJoinPool pool) {
+            int size = 0;
+            for (int x = pop(bound); x != -1; x = pop(bound)) {
+                if (size == bucket.length) {
+                    bucket = Arrays.copyOf(bucket, 2 * size);
+                }
+                bucket[size++] = x;
+            }
+            if (lengths.length < size) {
+                lengths = new int[bucket.length];
+            }
+            if (pool != null && size > VERIFICATIONS_PER_TASK) {
+                pool.invoke(new Verification(bound, mml, 0, size));
+            } else {
+                verify(bound, mml, 0, size);
+            }
+            return size;
+        }
+
+        private void verify(int bound, int mml, int from, int to) {
+            for (int i = from; i < to; i++) {
+                lengths[i] = (markedA.isMarked(bucket[i]) ? 0 : longestMatch(bucket[i], bound, mml));
+            }
+        }
+
+        /**
+         * Verifies a range of the bucket, split in halves until the ranges are small.
+         */
+        private final class Verification extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+            private final int bound;
+            private final int mml;
+            private final int from;
+            private final int to;
+
+            Verification(int bound, int mml, int from, int to) {
+                this.bound = bound;
+                this.mml = mml;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from <= VERIFICATIONS_PER_TASK) {
+                    verify(bound, mml, from, to);
+                    return;
+                }
+                int middle = (from + to) >>> 1;
+                invokeAll(new Verification(bound, mml, from, middle), new Verification(bound, mml, middle, to));
+            }
+        }
+
+        void push(int x, int bound) {
+            next[x] = heads[bound];
+            heads[bound] = x;
+        }
+
+        /* Removes a position from a bucket, or returns -1 if the bucket is empty. */
+        int pop(int bound) {
+            int x = heads[bound];
+            if (x != -1) {
+                heads[bound] = next[x];
+            }
+            return x;
+        }
+
+        /**
+         * @return the length of the longest unmarked common substring at a position of A, at most the given limit, or
+         * less than the minimum match length if there is none.
+         */
+        int longestMatch(int x, int limit, int mml) {
+            int best = mml - 1;
+            limit = runA(x, limit);
+            int rank = ranks[x];
+            int common = Integer.MAX_VALUE;
+            for (int r = rank - 1; r >= 0 && best < limit; r--) {
+                common = Math.min(common, lcp[r + 1]);
+                if (common <= best) {
+                    break;
+                }
+                best = Math.max(best, matchLength(suffixArray[r], Math.min(common, limit)));
+            }
+            common = Integer.MAX_VALUE;
+            for (int r = rank + 1; r < suffixArray.length && best < limit; r++) {
+                common = Math.min(common, lcp[r]);
+                if (common <= best) {
+                    break;
+                }
+                best = Math.max(best, matchLength(suffixArray[r], Math.min(common, limit)));
+            }
+            return best;
+        }
+
+        /**
+         * @return the positions of B in ascending order at which an unmarked common substring of the given length starts
+         * at a position of A. There is no longer one.
+         */
+        int[] matchesOf(int x, int length) {
+            int count = 0;
+            int rank = ranks[x];
+            int common = Integer.MAX_VALUE;
+            for (int r = rank - 1; r >= 0 && (common = Math.min(common, lcp[r + 1])) >= length; r--) {
+                count = addMatch(suffixArray[r], length, count);
+            }
+            common = Integer.MAX_VALUE;
+            for (int r = rank + 1; r < suffixArray.length && (common = Math.min(common, lcp[r])) >= length; r++) {
+                count = addMatch(suffixArray[r], length, count);
+            }
+            Arrays.sort(positions, 0, count);
+            return Arrays.copyOf(positions, count);
+        }
+
+        private int addMatch(int position, int length, int count) {
+            if (matchLength(position, length) == length) {
+                if (count == positions.length) {
+                    positions = Arrays.copyOf(positions, 2 * count);
+                }
+                positions[count++] = position - sizeA;
+            }
+            return count;
+        }
+
+        /* Returns how many tokens of a suffix of B are unmarked, at most the given number, or 0 for a suffix of A. */
+        private int matchLength(int position, int limit) {
+            if (position < sizeA) {
+                return 0;
+            }
+            int y = position - sizeA;
+            return markedB.nextMarked(y, Math.min(y + limit, sizeB)) - y;
+        }
+
+        /* Returns how many tokens of A starting at x are unmarked, at most the given number. */
+        private int runA(int x, int limit) {
+            return markedA.nextMarked(x, Math.min(x + limit, sizeA)) - x;
+        }
+    }
+
+    /**
+     * Builds the suffix array of a text by prefix doubling with radix sort.
+     * @return the starts of the suffixes in lexicographic order. A suffix that is a prefix of another one comes first.
+     */
+    static int[] buildSuffixArray(int[] text) {
+        int n = text.length;
+        int[] suffixArray = new int[n];
+        if (n == 0) {
+            return suffixArray;
+        }
+        int alphabetSize = 0;
+        for (int type : text) {
+            alphabetSize = Math.max(alphabetSize, type + 1);
+        }
+        int[] counts = new int[Math.max(alphabetSize, n) + 1];
+        int[] ranks = new int[n];
+        int[] buffer = new int[n];
+
+        for (int type : text) {
+            counts[type + 1]++;
+        }
+        for (int i = 1; i <= alphabetSize; i++) {
+            counts[i] += counts[i - 1];
+        }
+        for (int i = 0; i < n; i++) {
+            suffixArray[counts[text[i]]++] = i;
+        }
+        ranks[suffixArray[0]] = 0;
+        for (int i = 1; i < n; i++) {
+            ranks[suffixArray[i]] = ranks[suffixArray[i - 1]] + (text[suffixArray[i]] != text[suffixArray[i - 1]] ? 1 : 0);
+        }
+
+        for (int k = 1; ranks[suffixArray[n - 1]] < n - 1; k <<= 1) {
+            // order by the second half: suffixes without one come first
+            int count = 0;
+            for (int i = n - k; i < n; i++) {
+                buffer[count++] = i;
+            }
+            for (int i = 0; i < n; i++) {
+                if (suffixArray[i] >= k) {
+                    buffer[count++] = suffixArray[i] - k;
+                }
+            }
+            // stable order by the first half
+            int numberOfRanks = ranks[suffixArray[n - 1]] + 1;
+            Arrays.fill(counts, 0, numberOfRanks + 1, 0);
+            for (int i = 0; i < n; i++) {
+                counts[ranks[i] + 1]++;
+            }
+            for (int i = 1; i <= numberOfRanks; i++) {
+                counts[i] += counts[i - 1];
+            }
+            for (int i = 0; i < n; i++) {
+                suffixArray[counts[ranks[buffer[i]]]++] = buffer[i];
+            }
+            // rank the suffixes by both halves
+            buffer[suffixArray[0]] = 0;
+            for (int i = 1; i < n; i++) {
+                int previous = suffixArray[i - 1];
+                int current = suffixArray[i];
+                boolean equal = ranks[previous] == ranks[current]
+                        && (previous + k < n ? ranks[previous + k] : -1) == (current + k < n ? ranks[current + k] : -1);
+                buffer[current] = buffer[previous] + (equal ? 0 : 1);
+            }
+            int[] swap = ranks;
+            ranks = buffer;
+            buffer = swap;
+        }
+        return suffixArray;
+    }
+
+    /**
+     * Computes the longest common prefixes of neighboring suffixes in linear time (Kasai et al.).
+     * @return the array whose entry r is the LCP of the suffixes at the ranks r - 1 and r, 0 for r = 0.
+     */
+    static int[] buildLcpArray(int[] text, int[] suffixArray, int[] ranks) {
+        int n = text.length;
+        int[] lcp = new int[n];
+        int common = 0;
+        for (int i = 0; i < n; i++) {
+            if (ranks[i] == 0) {
+                common = 0;
+                continue;
+            }
+            int j = suffixArray[ranks[i] - 1];
+            while (i + common < n && j + common < n && text[i + common] == text[j + common]) {
+                common++;
+            }
+            lcp[ranks[i]] = common;
+            if (common > 0) {
+                common--;
+            }
+        }
+        return lcp;
+    }
+}
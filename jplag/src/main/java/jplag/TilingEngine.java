@@ -0,0 +1,20 @@
+package jplag;
+
+/**
+ * Algorithm that computes the tiles of two submissions for the {@link GreedyStringTiling}. All engines produce the same
+ * tiles in the same order: In each round, the longest unmarked common substrings are tiled in the order of their
+ * positions in A and B, skipping the ones that overlap an earlier tile of the round, until no common substring of the
+ * minimum match length is left.
+ */
+public interface TilingEngine {
+
+    /**
+     * Tiles two submissions, but may give up as soon as they cannot match a given number of tokens anymore.
+     * @param subA is the submission with more tokens.
+     * @param subB is the other submission.
+     * @param minimumMatchLength is the minimum length of a tile.
+     * @param minimumMatchedTokens is the number of tokens the comparison has to match, 0 to never give up.
+     * @return the comparison, or null if it cannot match the given number of tokens.
+     */
+    JPlagComparison compare(Submission subA, Submission subB, int minimumMatchLength, int minimumMatchedTokens);
+}
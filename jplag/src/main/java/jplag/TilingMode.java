@@ -0,0 +1,39 @@
+package jplag;
+
+import java.util.Arrays;
+
+/**
+ * The tiling mode determines which {@link TilingEngine} tiles the pairs of submissions that are below the suffix array
+ * tiling threshold. All engines produce the same tiles.
+ */
+public enum TilingMode {
+    HASH("hash"),
+    RUNNING_KARP_RABIN("rkr");
+
+    private final String displayName;
+
+    TilingMode(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return this.displayName;
+    }
+
+    public static TilingMode fromDisplayName(String displayName) {
+        return Arrays.stream(TilingMode.values())
+                .filter(tilingMode -> tilingMode.displayName.equals(displayName))
+                .findFirst()
+                .orElse(getDefault());
+    }
+
+    public static String[] getAllDisplayNames() {
+        return Arrays.stream(TilingMode.values())
+                .map(tilingMode -> tilingMode.displayName)
+                .toArray(String[]::new);
+    }
+
+    public static TilingMode getDefault() {
+        return TilingMode.HASH;
+    }
+}
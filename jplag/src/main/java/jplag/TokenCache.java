@@ -0,0 +1,199 @@
+package jplag;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persistent cache of the token streams of single files, which allows to skip the frontend for files that did not change
+ * since a previous run. An entry is identified by the content of the file, the language and the version of the
+ * frontend, so a changed file, language or frontend never uses an outdated entry.
+ * <p>
+ * Entries are written to a temporary file first and then moved in place, so concurrent runs and aborted writes never
+ * leave a partial entry behind. Entries are stored as {@link TokenFile token files}, which carry a checksum; entries
+ * that cannot be read are deleted and treated as missing. If the cache grows beyond its maximum size, the least
+ * recently used entries are evicted. All methods can be called concurrently.
+ */
+public class TokenCache {
+
+    private static final String ENTRY_SUFFIX = ".tokens";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final File directory;
+    private final long maximumSize;
+    private final byte[] languageKey;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidEntries = new LongAdder();
+
+    /**
+     * Creates a cache in the given directory, which is created if necessary.
+     * @param directory is the cache directory.
+     * @param maximumSize is the maximum size of all entries in bytes.
+     * @param languageName identifies the language option the tokens were created with.
+     * @param frontendVersion is the version of the frontend that creates the tokens.
+     * @throws ExitException if the directory cannot be created.
+     */
+    public TokenCache(File directory, long maximumSize, String languageName, String frontendVersion) throws ExitException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new ExitException("Cannot create token cache directory " + directory, ExitException.BAD_PARAMETER);
+        }
+        this.directory = directory;
+        this.maximumSize = maximumSize;
+        this.languageKey = (languageName + '\n' + frontendVersion + '\n').getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Computes the key of the entry of a file from its content.
+     * @param file is the source file.
+     * @return the key of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    public String getKey(File file) throws IOException {
+        MessageDigest digest = createDigest();
+        digest.update(languageKey);
+        digest.update(Files.readAllBytes(file.toPath()));
+        StringBuilder key = new StringBuilder();
+        for (byte value : digest.digest()) {
+            key.append(String.format("%02x", value));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Loads the tokens of a file.
+     * @param key is the key of the file, see {@link #getKey(File)}.
+     * @param fileName is the name the tokens refer to.
+     * @return the tokens of the file including its file end token, or null if the cache has no valid entry.
+     */
+    public List<Token> load(String key, String fileName) {
+        File entry = new File(directory, key + ENTRY_SUFFIX);
+        List<Token> tokens = null;
+        if (entry.isFile()) {
+            try {
+                tokens = toTokens(TokenFile.read(entry), fileName);
+                entry.setLastModified(System.currentTimeMillis()); // marks the entry as recently used for eviction
+            } catch (IOException e) {
+                invalidEntries.increment();
+                entry.delete();
+            }
+        }
+        (tokens != null ? hits : misses).increment();
+        return tokens;
+    }
+
+    /**
+     * Stores the tokens of a file. Failures are ignored, as the file is just parsed again in the next run.
+     * @param key is the key of the file, see {@link #getKey(File)}.
+     * @param tokens are the tokens of the file including its file end token.
+     */
+    public void store(String key, List<Token> tokens) {
+        try {
+            writeAtomically(new File(directory, key + ENTRY_SUFFIX), TokenFile.encode(new TokenSequence(tokens)));
+        } catch (IOException e) {
+            // the file is parsed again in the next run
+        }
+    }
+
+    /**
+     * Writes a file via a temporary file in the same directory, so that it either keeps its old content or gets the
+     * complete new one, even if the write is aborted or another process writes the same file.
+     * @param file is the file to write.
+     * @param content is the new content of the file.
+     * @throws IOException if the file cannot be written.
+     */
+    static void writeAtomically(File file, byte[] content) throws IOException {
+        File temporaryFile = File.createTempFile(file.getName(), TEMPORARY_SUFFIX, file.getParentFile());
+        try {
+            try (FileOutputStream output = new FileOutputStream(temporaryFile)) {
+                output.write(content);
+                output.getFD().sync(); // the content is complete on disk before it becomes visible
+            }
+            try {
+                Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            temporaryFile.delete(); // no effect if the file was moved
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache does not exceed its maximum size.
+     * @return the number of deleted entries.
+     */
+    public int evict() {
+        File[] entries = directory.listFiles((dir, name) -> name.endsWith(ENTRY_SUFFIX));
+        if (entries == null) {
+            return 0;
+        }
+        long size = 0;
+        long[] lastModified = new long[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            size += entries[i].length();
+            lastModified[i] = entries[i].lastModified();
+        }
+        if (size <= maximumSize) {
+            return 0;
+        }
+        Integer[] order = new Integer[entries.length];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparingLong(i -> lastModified[i]));
+        int deleted = 0;
+        for (int i = 0; i < order.length && size > maximumSize; i++) {
+            File entry = entries[order[i]];
+            long length = entry.length();
+            if (entry.delete()) {
+                size -= length;
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    public long getNumberOfHits() {
+        return hits.sum();
+    }
+
+    public long getNumberOfMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of entries that could not be read and were deleted.
+     */
+    public long getNumberOfInvalidEntries() {
+        return invalidEntries.sum();
+    }
+
+    /* Creates the tokens of a cached sequence, which refer to the given file name. */
+    private static List<Token> toTokens(TokenSequence sequence, String fileName) {
+        List<Token> tokens = new ArrayList<>(sequence.size());
+        for (int i = 0; i < sequence.size(); i++) {
+            tokens.add(new CachedToken(sequence.getType(i), fileName, sequence.getLine(i), sequence.getColumn(i),
+                    sequence.getLength(i), sequence.getIndex(i)));
+        }
+        return tokens;
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every Java platform supports SHA-256
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package jplag;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary format of a {@link TokenSequence}, used by the {@link TokenCache} and to pass token streams between
+ * processes. The format is columnar: after a header and a string table with the file names, each token attribute is
+ * stored as one column of variable-length integers (7 bits per byte, least significant group first). Lines and indices
+ * are delta-encoded against the previous token, and all signed values are zigzag-encoded, so typical values take one or
+ * two bytes. A CRC32 checksum of all preceding bytes ends the file.
+ * <p>
+ * Reading maps the file into memory and decodes each column straight into the primitive arrays of the sequence.
+ */
+public final class TokenFile {
+
+    private static final int MAGIC = 0x4A50534B; // "JPSK"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES; // magic, format version
+    private static final int CHECKSUM_SIZE = Long.BYTES;
+
+    private TokenFile() {
+        // static helper class
+    }
+
+    /**
+     * Encodes a token sequence.
+     * @param sequence is the token sequence.
+     * @return the encoded sequence.
+     */
+    public static byte[] encode(TokenSequence sequence) {
+        int size = sequence.size();
+        String[] files = sequence.getFiles();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(HEADER_SIZE + 6 * size + CHECKSUM_SIZE);
+        writeInt(output, MAGIC);
+        writeInt(output, FORMAT_VERSION);
+        writeVarInt(output, size);
+        writeVarInt(output, files.length);
+        for (String file : files) {
+            byte[] name = file.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(output, name.length);
+            output.write(name, 0, name.length);
+        }
+        for (int i = 0; i < size; i++) {
+            writeVarInt(output, sequence.getType(i));
+        }
+        for (int i = 0; i < size; i++) {
+            writeVarInt(output, sequence.getFileIndex(i) - (i > 0 ? sequence.getFileIndex(i - 1) : 0));
+        }
+        for (int i = 0; i < size; i++) {
+            writeVarInt(output, zigzag(sequence.getLine(i) - (i > 0 ? sequence.getLine(i - 1) : 0)));
+        }
+        for (int i = 0; i < size; i++) {
+            writeVarInt(output, zigzag(sequence.getColumn(i)));
+        }
+        for (int i = 0; i < size; i++) {
+            writeVarInt(output, zigzag(sequence.getLength(i)));
+        }
+        for (int i = 0; i < size; i++) {
+            writeVarInt(output, zigzag(sequence.getIndex(i) - (i > 0 ? sequence.getIndex(i - 1) : 0)));
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(output.toByteArray());
+        writeInt(output, (int) (checksum.getValue() >>> 32));
+        writeInt(output, (int) checksum.getValue());
+        return output.toByteArray();
+    }
+
+    /**
+     * Reads a token sequence from a file by mapping it into memory.
+     * @param file is the file that contains the encoded sequence.
+     * @return the token sequence.
+     * @throws IOException if the file cannot be read or is no valid token file.
+     */
+    public static TokenSequence read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Decodes a token sequence.
+     * @param buffer contains the encoded sequence between its position and its limit.
+     * @return the token sequence.
+     * @throws IOException if the buffer contains no valid token sequence.
+     */
+    public static TokenSequence decode(ByteBuffer buffer) throws IOException {
+        try {
+            int start = buffer.position();
+            if (buffer.remaining() < HEADER_SIZE + CHECKSUM_SIZE || buffer.getInt() != MAGIC
+                    || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown token file format");
+            }
+            ByteBuffer content = buffer.duplicate();
+            content.position(start).limit(buffer.limit() - CHECKSUM_SIZE);
+            CRC32 checksum = new CRC32();
+            checksum.update(content);
+            if (buffer.getLong(buffer.limit() - CHECKSUM_SIZE) != checksum.getValue()) {
+                throw new IOException("Corrupt token file");
+            }
+            buffer.limit(buffer.limit() - CHECKSUM_SIZE);
+
+            int size = readLength(buffer);
+            String[] files = new String[readLength(buffer)];
+            for (int i = 0; i < files.length; i++) {
+                byte[] name = new byte[readLength(buffer)];
+                buffer.get(name);
+                files[i] = new String(name, StandardCharsets.UTF_8);
+            }
+            int[] types = new int[size];
+            int[] fileIndices = new int[size];
+            int[] lines = new int[size];
+            int[] columns = new int[size];
+            int[] lengths = new int[size];
+            int[] indices = new int[size];
+            for (int i = 0; i < size; i++) {
+                types[i] = readVarInt(buffer);
+            }
+            for (int i = 0; i < size; i++) {
+                fileIndices[i] = readVarInt(buffer) + (i > 0 ? fileIndices[i - 1] : 0);
+                if (fileIndices[i] < 0 || fileIndices[i] >= files.length) {
+                    throw new IOException("Corrupt token file");
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                lines[i] = unzigzag(readVarInt(buffer)) + (i > 0 ? lines[i - 1] : 0);
+            }
+            for (int i = 0; i < size; i++) {
+                columns[i] = unzigzag(readVarInt(buffer));
+            }
+            for (int i = 0; i < size; i++) {
+                lengths[i] = unzigzag(readVarInt(buffer));
+            }
+            for (int i = 0; i < size; i++) {
+                indices[i] = unzigzag(readVarInt(buffer)) + (i > 0 ? indices[i - 1] : 0);
+            }
+            if (buffer.hasRemaining()) {
+                throw new IOException("Corrupt token file");
+            }
+            return new TokenSequence(types, lines, columns, lengths, indices, fileIndices, files);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Truncated token file", e);
+        }
+    }
+
+    private static void writeInt(ByteArrayOutputStream output, int value) {
+        output.write(value >>> 24);
+        output.write(value >>> 16);
+        output.write(value >>> 8);
+        output.write(value);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream output, int value) {
+        while ((value & ~0x7F) != 0) {
+            output.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            byte next = buffer.get();
+            value |= (next & 0x7F) << shift;
+            if (next >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt token file");
+    }
+
+    /* Reads a length, which cannot exceed the remaining bytes, as each element takes at least one byte. */
+    private static int readLength(ByteBuffer buffer) throws IOException {
+        int length = readVarInt(buffer);
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Corrupt token file");
+        }
+        return length;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
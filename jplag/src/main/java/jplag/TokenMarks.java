@@ -0,0 +1,87 @@
+package jplag;
+
+/**
+ * Bit set of token indices, used to mark the tokens of a token list that cannot (or no longer) be part of a match.
+ * <p>
+ * Note: This class is used by {@link GreedyStringTiling} to keep the marks of a comparison outside of the shared
+ * {@link Token} objects. Instances are reused between comparisons; copying marks is a bulk operation on the
+ * underlying words.
+ */
+public class TokenMarks {
+
+    private long[] words;
+
+    /**
+     * Creates an empty bit set for a token list.
+     * @param size is the number of tokens.
+     */
+    public TokenMarks(int size) {
+        words = new long[(size + 63) >>> 6];
+    }
+
+    public final boolean isMarked(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public final void mark(int index) {
+        words[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Marks a range of consecutive tokens.
+     * @param start is the index of the first token to mark.
+     * @param length is the number of tokens to mark.
+     */
+    public final void markRange(int start, int length) {
+        if (length <= 0) {
+            return;
+        }
+        int end = start + length - 1;
+        int startWord = start >>> 6;
+        int endWord = end >>> 6;
+        long startMask = -1L << start;
+        long endMask = -1L >>> (63 - (end & 63));
+        if (startWord == endWord) {
+            words[startWord] |= startMask & endMask;
+            return;
+        }
+        words[startWord] |= startMask;
+        for (int i = startWord + 1; i < endWord; i++) {
+            words[i] = -1L;
+        }
+        words[endWord] |= endMask;
+    }
+
+    /**
+     * Finds the next marked token, skipping unmarked tokens a word at a time.
+     * @param from is the index of the first token to check.
+     * @param limit is the index at which the search stops.
+     * @return the index of the first marked token in [from, limit), or limit if there is none.
+     */
+    public final int nextMarked(int from, int limit) {
+        if (from >= limit) {
+            return limit;
+        }
+        int wordIndex = from >>> 6;
+        long word = words[wordIndex] & (-1L << from);
+        while (word == 0) {
+            if (++wordIndex >= words.length || (wordIndex << 6) >= limit) {
+                return limit;
+            }
+            word = words[wordIndex];
+        }
+        return Math.min(limit, (wordIndex << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    /**
+     * Replaces the marks by the marks of another bit set, for all token indices of the other bit set. The capacity grows
+     * if necessary.
+     * @param other is the bit set to copy.
+     */
+    public final void copyFrom(TokenMarks other) {
+        if (words.length < other.words.length) {
+            words = new long[other.words.length];
+        }
+        System.arraycopy(other.words, 0, words, 0, other.words.length);
+    }
+}
@@ -0,0 +1,139 @@
+package jplag;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Frozen, primitive view of the token list of a submission. The token attributes are stored in parallel arrays, so the
+ * comparison algorithm reads them without following a reference per token.
+ * <p>
+ * The view is created once after parsing and never changes afterwards, except for the hashes that are created by
+ * {@link GreedyStringTiling} before the first comparison.
+ */
+public final class TokenSequence {
+
+    private final int[] types;
+    private final int[] lines;
+    private final int[] columns;
+    private final int[] lengths;
+    private final int[] indices;
+    private final int[] fileIndices; // index into files for every token
+    private final String[] files;
+
+    // set and used by main algorithm (GSTiling):
+    long[] hashes = null;
+    HashIndex hashIndex = null;
+    int hashLength = -1;
+
+    /**
+     * Creates the view of a token list.
+     * @param structure is the token list.
+     */
+    public TokenSequence(Structure structure) {
+        this(Arrays.asList(structure.tokens).subList(0, structure.size()));
+    }
+
+    /**
+     * Creates the view of a list of tokens.
+     * @param tokens are the tokens.
+     */
+    public TokenSequence(List<Token> tokens) {
+        int size = tokens.size();
+        types = new int[size];
+        lines = new int[size];
+        columns = new int[size];
+        lengths = new int[size];
+        indices = new int[size];
+        fileIndices = new int[size];
+
+        String[] fileNames = new String[4];
+        int numberOfFiles = 0;
+        for (int i = 0; i < size; i++) {
+            Token token = tokens.get(i);
+            types[i] = token.type;
+            lines[i] = token.getLine();
+            columns[i] = token.getColumn();
+            lengths[i] = token.getLength();
+            indices[i] = token.getIndex();
+            if (numberOfFiles == 0 || !fileNames[numberOfFiles - 1].equals(token.file)) {
+                if (numberOfFiles == fileNames.length) {
+                    String[] oldFileNames = fileNames;
+                    fileNames = new String[2 * oldFileNames.length];
+                    System.arraycopy(oldFileNames, 0, fileNames, 0, numberOfFiles);
+                }
+                fileNames[numberOfFiles++] = token.file;
+            }
+            fileIndices[i] = numberOfFiles - 1;
+        }
+        files = new String[numberOfFiles];
+        System.arraycopy(fileNames, 0, files, 0, numberOfFiles);
+    }
+
+    /**
+     * Creates a view from its columns, as read by {@link TokenFile}. The arrays are not copied.
+     */
+    TokenSequence(int[] types, int[] lines, int[] columns, int[] lengths, int[] indices, int[] fileIndices, String[] files) {
+        this.types = types;
+        this.lines = lines;
+        this.columns = columns;
+        this.lengths = lengths;
+        this.indices = indices;
+        this.fileIndices = fileIndices;
+        this.files = files;
+    }
+
+    public int size() {
+        return types.length;
+    }
+
+    /**
+     * @return the token types, indexed by token position. The array must not be modified.
+     */
+    public int[] getTypes() {
+        return types;
+    }
+
+    public int getType(int index) {
+        return types[index];
+    }
+
+    public int getLine(int index) {
+        return lines[index];
+    }
+
+    public int getColumn(int index) {
+        return columns[index];
+    }
+
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * @return the frontend specific index of the token at the given position, see {@link Token#getIndex()}.
+     */
+    public int getIndex(int index) {
+        return indices[index];
+    }
+
+    /**
+     * @return the index of the file that contains the token at the given position into {@link #getFiles()}.
+     */
+    public int getFileIndex(int index) {
+        return fileIndices[index];
+    }
+
+    /**
+     * @return the name of the file that contains the token at the given position.
+     */
+    public String getFile(int index) {
+        return files[fileIndices[index]];
+    }
+
+    /**
+     * @return the names of all files of the sequence, in order of appearance.
+     */
+    public String[] getFiles() {
+        return files.clone();
+    }
+}
@@ -3,6 +3,7 @@ package jplag.options;
 import static jplag.strategy.ComparisonMode.NORMAL;
 
 import jplag.Language;
+import jplag.TilingMode;
 import jplag.strategy.ComparisonMode;
 
 public class JPlagOptions {
@@ -13,28 +14,52 @@ public class JPlagOptions {
     private Language language;
 
     /**
-     * Deprecated - use similarityThreshold instead! Maximum number of comparisons to store per run.
+     * Maximum number of comparisons to store per run. Only the most similar comparisons according to the similarity
+     * metric are kept, while the similarity distribution covers all comparisons above the similarity threshold.
      */
-    @Deprecated
-    private int storeMatches = 30;
+    private int storeMatches = 0; // 0 = all
 
     /**
-     * Deprecated - use similarityThreshold instead!
-     * <p>
      * True, if `storeMatches` should be interpreted as a percentage threshold for the similarity of a comparison; false
-     * otherwise;
+     * otherwise. The higher one of this percentage and the similarity threshold applies.
      */
-    @Deprecated
     private boolean storePercent = false;
 
     /**
-     * TODO PB: Decide what to do with this.
-     * <p>
-     * Note: Previously, this option had two effects:
-     * <ol>
-     * <li>If this option was > 0, it told JPlag to use the 'special' comparison strategy</li>
-     * <li>It specifies the number of submissions to compare each submission to during the 'special' comparison</li>
-     * </ol>
+     * True, if the base code should be masked with a scan for the windows of the submissions that occur in the base code
+     * instead of a full tiling per submission. See {@link jplag.GreedyStringTiling#compareWithBaseCodeIndex}.
+     */
+    private boolean baseCodeIndexMasking = false;
+
+    /**
+     * True, if comparisons should keep only their number of matched tokens during the run. The matches of the
+     * comparisons that are shown in the report are then computed again, which saves most of the memory of the results
+     * if many comparisons are above the similarity threshold.
+     */
+    private boolean discardMatches = false;
+
+    /**
+     * Number of tokens of a pair of submissions from which on they are tiled with a suffix array instead of hashes, 0 to
+     * always use hashes. The suffix array only pays off for pairs with tens of thousands of tokens per submission, so it
+     * is disabled by default. See {@link jplag.SuffixArrayTiling}.
+     */
+    private int suffixArrayTilingThreshold = 0;
+
+    /**
+     * Number of tokens that both submissions of a pair have to exceed, so that the search of each round of their tiling
+     * is split among the threads of the common fork/join pool, 0 to always search sequentially. It requires more than
+     * one {@link #getNumberOfThreads() thread}.
+     */
+    private int parallelTilingThreshold = 50000;
+
+    /**
+     * Tiling mode used for the pairs of submissions below the suffix array tiling threshold.
+     */
+    private TilingMode tilingMode = TilingMode.getDefault();
+
+    /**
+     * Number of most similar peers that the incremental comparison mode keeps per submission. A comparison is kept if it
+     * is among the most similar ones of at least one of its submissions.
      */
     private int numberOfSubmissionsToCompareTo = 0; // 0 = deactivated
 
@@ -43,6 +68,32 @@ public class JPlagOptions {
      */
     private ComparisonMode comparisonMode = NORMAL;
 
+    /**
+     * Number of threads used for parsing and by the parallel comparison mode.
+     */
+    private int numberOfThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of bands of the MinHash signatures used by the MinHash comparison mode. More bands find more candidate pairs.
+     */
+    private int minHashBands = 32;
+
+    /**
+     * Number of rows per band of the MinHash signatures. More rows find fewer candidate pairs.
+     */
+    private int minHashRows = 1;
+
+    /**
+     * Directory of the persistent cache, which keeps the tokens of parsed files and the outcomes of comparisons across
+     * runs. If null, no cache is used.
+     */
+    private String tokenCacheDirectory;
+
+    /**
+     * Maximum size of the token cache in megabytes. The least recently used entries are evicted beyond this size.
+     */
+    private int maximumTokenCacheSize = 512;
+
     /**
      * If true, submissions that cannot be parsed will be stored in a separate directory.
      */
@@ -79,6 +130,12 @@ public class JPlagOptions {
      */
     private String rootDirName;
 
+    /**
+     * Directory that contains new submissions. The incremental comparison mode compares them to each other and to the
+     * submissions of the root directory, but does not compare the latter to each other.
+     */
+    private String newSubmissionDirectoryName;
+
     /**
      * Name of the directory which contains the base code.
      */
@@ -148,20 +205,58 @@ public class JPlagOptions {
         return comparisonMode;
     }
 
+    public int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+
+    public int getMinHashBands() {
+        return minHashBands;
+    }
+
+    public int getMinHashRows() {
+        return minHashRows;
+    }
+
+    public String getTokenCacheDirectory() {
+        return tokenCacheDirectory;
+    }
+
+    public int getMaximumTokenCacheSize() {
+        return maximumTokenCacheSize;
+    }
+
     public String[] getFileSuffixes() {
         return fileSuffixes;
     }
 
-    @Deprecated
     public int getStoreMatches() {
         return storeMatches;
     }
 
-    @Deprecated
     public boolean isStorePercent() {
         return storePercent;
     }
 
+    public boolean isBaseCodeIndexMasking() {
+        return baseCodeIndexMasking;
+    }
+
+    public boolean isDiscardMatches() {
+        return discardMatches;
+    }
+
+    public int getSuffixArrayTilingThreshold() {
+        return suffixArrayTilingThreshold;
+    }
+
+    public int getParallelTilingThreshold() {
+        return parallelTilingThreshold;
+    }
+
+    public TilingMode getTilingMode() {
+        return tilingMode;
+    }
+
     public Language getLanguage() {
         return language;
     }
@@ -178,6 +273,10 @@ public class JPlagOptions {
         return rootDirName;
     }
 
+    public String getNewSubmissionDirectoryName() {
+        return newSubmissionDirectoryName;
+    }
+
     public String getBaseCodeSubmissionName() {
         return baseCodeSubmissionName;
     }
@@ -207,13 +306,33 @@ public class JPlagOptions {
     }
 
     public void setNumberOfSubmissionsToCompareTo(int numberOfSubmissionsToCompareTo) {
-        this.numberOfSubmissionsToCompareTo = numberOfSubmissionsToCompareTo;
+        this.numberOfSubmissionsToCompareTo = Math.max(0, numberOfSubmissionsToCompareTo);
     }
 
     public void setComparisonMode(ComparisonMode comparisonMode) {
         this.comparisonMode = comparisonMode;
     }
 
+    public void setNumberOfThreads(int numberOfThreads) {
+        this.numberOfThreads = Math.max(1, numberOfThreads);
+    }
+
+    public void setMinHashBands(int minHashBands) {
+        this.minHashBands = Math.max(1, minHashBands);
+    }
+
+    public void setMinHashRows(int minHashRows) {
+        this.minHashRows = Math.max(1, minHashRows);
+    }
+
+    public void setTokenCacheDirectory(String tokenCacheDirectory) {
+        this.tokenCacheDirectory = tokenCacheDirectory;
+    }
+
+    public void setMaximumTokenCacheSize(int maximumTokenCacheSize) {
+        this.maximumTokenCacheSize = Math.max(0, maximumTokenCacheSize);
+    }
+
     public void setDebugParser(boolean debugParser) {
         this.debugParser = debugParser;
     }
@@ -222,16 +341,34 @@ public class JPlagOptions {
         this.fileSuffixes = fileSuffixes;
     }
 
-    @Deprecated
     public void setStoreMatches(int storeMatches) {
-        this.storeMatches = storeMatches;
+        this.storeMatches = Math.max(0, storeMatches);
     }
 
-    @Deprecated
     public void setStorePercent(boolean storePercent) {
         this.storePercent = storePercent;
     }
 
+    public void setBaseCodeIndexMasking(boolean baseCodeIndexMasking) {
+        this.baseCodeIndexMasking = baseCodeIndexMasking;
+    }
+
+    public void setDiscardMatches(boolean discardMatches) {
+        this.discardMatches = discardMatches;
+    }
+
+    public void setSuffixArrayTilingThreshold(int suffixArrayTilingThreshold) {
+        this.suffixArrayTilingThreshold = Math.max(0, suffixArrayTilingThreshold);
+    }
+
+    public void setParallelTilingThreshold(int parallelTilingThreshold) {
+        this.parallelTilingThreshold = Math.max(0, parallelTilingThreshold);
+    }
+
+    public void setTilingMode(TilingMode tilingMode) {
+        this.tilingMode = tilingMode;
+    }
+
     public void setMinTokenMatch(Integer minTokenMatch) {
         this.minTokenMatch = minTokenMatch;
     }
@@ -244,6 +381,10 @@ public class JPlagOptions {
         this.rootDirName = rootDirName;
     }
 
+    public void setNewSubmissionDirectoryName(String newSubmissionDirectoryName) {
+        this.newSubmissionDirectoryName = newSubmissionDirectoryName;
+    }
+
     public void setBaseCodeSubmissionName(String baseCodeSubmissionName) {
         this.baseCodeSubmissionName = baseCodeSubmissionName;
     }
@@ -29,6 +29,8 @@ import jplag.Token;
  */
 public class Report {
 
+    private static final int MATCHES_PER_THREAD = 4;
+
     private JPlagResult result;
     private final File reportDir;
     private final Messages msg;
@@ -328,14 +330,23 @@ public class Report {
     }
 
     private void writeMatches(List<JPlagComparison> comparisons) {
-        comparisons.forEach(comparison -> {
-            try {
-                int i = getComparisonIndex(comparison);
-                writeMatch(comparison, i);
-            } catch (ExitException e) {
-                e.printStackTrace();
-            }
-        });
+        // discarded matches are restored for a few comparisons at a time, and discarded again once they are written:
+        int batchSize = MATCHES_PER_THREAD * result.getOptions().getNumberOfThreads();
+        for (int start = 0; start < comparisons.size(); start += batchSize) {
+            List<JPlagComparison> batch = comparisons.subList(start, Math.min(start + batchSize, comparisons.size()));
+            result.restoreMatches(batch);
+            batch.forEach(comparison -> {
+                try {
+                    int i = getComparisonIndex(comparison);
+                    writeMatch(comparison, i);
+                } catch (ExitException e) {
+                    e.printStackTrace();
+                }
+                if (result.getOptions().isDiscardMatches()) {
+                    comparison.discardMatches();
+                }
+            });
+        }
     }
 
     private void writeMatch(JPlagComparison comparison, int i) throws ExitException {
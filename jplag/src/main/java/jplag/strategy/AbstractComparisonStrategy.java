@@ -1,11 +1,27 @@
 package jplag.strategy;
 
-import java.util.Hashtable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import jplag.GreedyStringTiling;
 import jplag.JPlagBaseCodeComparison;
 import jplag.JPlagComparison;
+import jplag.JPlagResult;
+import jplag.ProgramI;
 import jplag.Submission;
 import jplag.options.JPlagOptions;
 import jplag.options.SimilarityMetric;
@@ -13,45 +29,240 @@ import jplag.options.SimilarityMetric;
 public abstract class AbstractComparisonStrategy implements ComparisonStrategy {
 
     // TODO PB: I think it's better to make each submission store its own matches with the base code.
-    // Hashtable that maps the name of a submissions to its matches with the provided base code.
-    protected Hashtable<String, JPlagBaseCodeComparison> baseCodeMatches = new Hashtable<>(30);
+    // Map that maps the name of a submissions to its matches with the provided base code.
+    protected Map<String, JPlagBaseCodeComparison> baseCodeMatches = new ConcurrentHashMap<>();
 
     protected GreedyStringTiling greedyStringTiling;
 
     protected JPlagOptions options;
 
-    public AbstractComparisonStrategy(JPlagOptions options, GreedyStringTiling greedyStringTiling) {
+    protected ProgramI program;
+
+    public AbstractComparisonStrategy(JPlagOptions options, GreedyStringTiling greedyStringTiling, ProgramI program) {
         this.greedyStringTiling = greedyStringTiling;
         this.options = options;
+        this.program = program;
+    }
+
+    /**
+     * Compares the submissions and collects the comparison results in a list. If a maximum number of comparisons to store
+     * is configured, only the most similar ones are kept, while the similarity distribution covers all of them.
+     */
+    @Override
+    public JPlagResult compareSubmissions(Vector<Submission> submissions, Submission baseCodeSubmission) {
+        long timeBeforeStartInMillis = System.currentTimeMillis();
+        if (options.isStorePercent() || options.getStoreMatches() <= 0) {
+            List<JPlagComparison> comparisons = new ArrayList<>();
+            compareSubmissions(submissions, baseCodeSubmission, comparisons::add);
+            long durationInMillis = System.currentTimeMillis() - timeBeforeStartInMillis;
+            return new JPlagResult(comparisons, durationInMillis, submissions.size(), options);
+        }
+        int[] similarityDistribution = new int[10];
+        TopComparisons topComparisons = new TopComparisons(options.getStoreMatches(), this::getSimilarity);
+        compareSubmissions(submissions, baseCodeSubmission, comparison -> {
+            similarityDistribution[JPlagResult.getSimilarityInterval(comparison)]++;
+            topComparisons.accept(comparison);
+        });
+        long durationInMillis = System.currentTimeMillis() - timeBeforeStartInMillis;
+        return new JPlagResult(topComparisons.getComparisons(), similarityDistribution, durationInMillis, submissions.size(), options);
+    }
+
+    @Override
+    public void printStatistics() {
+        // most strategies have no statistics
     }
 
+    /**
+     * Compares every submission with the base code, distributed over the configured number of threads. Each submission
+     * gets its own mask of the tokens that match the base code, while the base code is only read.
+     * @param submissions are the submissions.
+     * @param baseCodeSubmission is the base code.
+     */
     protected void compareSubmissionsToBaseCode(Vector<Submission> submissions, Submission baseCodeSubmission) {
-        int numberOfSubmissions = submissions.size();
+        greedyStringTiling.prepareHashes(baseCodeSubmission); // the index of the base code is shared by all submissions
+        int numberOfThreads = Math.min(options.getNumberOfThreads(), submissions.size());
+        if (numberOfThreads <= 1) {
+            for (Submission submission : submissions) {
+                baseCodeMatches.put(submission.name, compareSubmissionToBaseCode(submission, baseCodeSubmission));
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        List<Future<?>> tasks = new ArrayList<>();
+        try {
+            for (Submission submission : submissions) {
+                tasks.add(executor.submit(
+                        () -> baseCodeMatches.put(submission.name, compareSubmissionToBaseCode(submission, baseCodeSubmission))));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while comparing submissions to the base code", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Comparing submissions to the base code failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-        JPlagBaseCodeComparison baseCodeMatch;
-        Submission currentSubmission;
+    private JPlagBaseCodeComparison compareSubmissionToBaseCode(Submission submission, Submission baseCodeSubmission) {
+        if (options.isBaseCodeIndexMasking()) {
+            return greedyStringTiling.compareWithBaseCodeIndex(submission, baseCodeSubmission);
+        }
+        return greedyStringTiling.compareWithBaseCode(submission, baseCodeSubmission);
+    }
 
-        for (int i = 0; i < (numberOfSubmissions); i++) {
-            currentSubmission = submissions.elementAt(i);
+    /**
+     * Compares two submissions and considers the base code matches of both.
+     * @param first is the first submission.
+     * @param second is the second submission.
+     * @param baseCodeSubmission is the base code, or null if there is none.
+     * @return the comparison, if its similarity is above the similarity threshold.
+     */
+    protected Optional<JPlagComparison> compareSubmissions(Submission first, Submission second, Submission baseCodeSubmission) {
+        int minimumMatchedTokens = getMinimumMatchedTokens(first, second, baseCodeSubmission);
+        if (minimumMatchedTokens < 0) {
+            return Optional.empty();
+        }
+        JPlagComparison comparison = greedyStringTiling.compare(first, second, minimumMatchedTokens);
+        if (comparison == null) {
+            return Optional.empty(); // below the similarity threshold
+        }
+        return completeComparison(first, second, comparison, baseCodeSubmission);
+    }
 
-            baseCodeMatch = greedyStringTiling.compareWithBaseCode(currentSubmission, baseCodeSubmission);
-            baseCodeMatches.put(currentSubmission.name, baseCodeMatch);
+    /**
+     * Creates the comparison of two submissions that are known to have no matches without tiling them, and considers the
+     * base code matches of both.
+     * @param first is the first submission.
+     * @param second is the second submission.
+     * @param baseCodeSubmission is the base code, or null if there is none.
+     * @return the comparison, if its similarity is above the similarity threshold.
+     */
+    protected Optional<JPlagComparison> createComparisonWithoutMatches(Submission first, Submission second, Submission baseCodeSubmission) {
+        return completeComparison(first, second, greedyStringTiling.createComparisonWithoutMatches(first, second), baseCodeSubmission);
+    }
 
-            greedyStringTiling.resetBaseSubmission(baseCodeSubmission);
+    private Optional<JPlagComparison> completeComparison(Submission first, Submission second, JPlagComparison comparison,
+            Submission baseCodeSubmission) {
+        // TODO SH: Why does this differ from the results shown in the result web page?
+        program.print(null, "Comparing " + first.name + "-" + second.name + ": " + comparison.percent() + "\n");
+        // 考虑基础代码和相似度阈值
+        if (baseCodeSubmission != null) {
+            comparison.bcMatchesA = baseCodeMatches.get(comparison.firstSubmission.name);
+            comparison.bcMatchesB = baseCodeMatches.get(comparison.secondSubmission.name);
+        }
+        if (!isAboveSimilarityThreshold(comparison)) {
+            return Optional.empty();
+        }
+        if (options.isDiscardMatches()) {
+            comparison.discardMatches();
         }
+        return Optional.of(comparison);
     }
 
     protected boolean isAboveSimilarityThreshold(JPlagComparison comparison) {
-        float similarityThreshold = this.options.getSimilarityThreshold();
+        return isAboveSimilarityThreshold(comparison, comparison.getNumberOfMatchedTokens());
+    }
+
+    /**
+     * Determines how many tokens two submissions have to match to reach the similarity threshold. The number is derived
+     * from an upper bound of the matched tokens with the same formula as the threshold check, so a comparison that
+     * matches fewer tokens is never above the threshold.
+     * @param first is the first submission.
+     * @param second is the second submission.
+     * @param baseCodeSubmission is the base code, or null if there is none.
+     * @return the minimum number of matched tokens, or -1 if the similarity is definitely below the threshold.
+     */
+    protected int getMinimumMatchedTokens(Submission first, Submission second, Submission baseCodeSubmission) {
+        if (getSimilarityThreshold() <= 0) {
+            return 0;
+        }
+        JPlagComparison bestCase = new JPlagComparison(first, second);
+        if (baseCodeSubmission != null) {
+            bestCase.bcMatchesA = baseCodeMatches.get(first.name);
+            bestCase.bcMatchesB = baseCodeMatches.get(second.name);
+        }
+        int upperBound = greedyStringTiling.getMatchedTokensUpperBound(first, second);
+        if (!isAboveSimilarityThreshold(bestCase, upperBound)) {
+            return -1;
+        }
+        // the similarity grows with the matched tokens, so binary search the smallest sufficient number:
+        int low = 0;
+        int high = upperBound;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (isAboveSimilarityThreshold(bestCase, middle)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Keeps only the comparisons that are among the most similar ones of at least one of their submissions, according
+     * to the similarity metric. Ties keep the earlier comparison.
+     * @param comparisons are the comparisons.
+     * @param numberOfPeers is the number of comparisons to keep per submission, 0 to keep all comparisons.
+     * @return the kept comparisons in their original order.
+     */
+    protected List<JPlagComparison> retainMostSimilarPeers(List<JPlagComparison> comparisons, int numberOfPeers) {
+        if (numberOfPeers <= 0) {
+            return comparisons;
+        }
+        Map<Submission, List<JPlagComparison>> comparisonsOfSubmission = new HashMap<>();
+        for (JPlagComparison comparison : comparisons) {
+            comparisonsOfSubmission.computeIfAbsent(comparison.firstSubmission, it -> new ArrayList<>()).add(comparison);
+            comparisonsOfSubmission.computeIfAbsent(comparison.secondSubmission, it -> new ArrayList<>()).add(comparison);
+        }
+        Set<JPlagComparison> retained = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (List<JPlagComparison> peers : comparisonsOfSubmission.values()) {
+            peers.sort(Comparator.comparingDouble(this::getSimilarity).reversed()); // stable
+            retained.addAll(peers.subList(0, Math.min(numberOfPeers, peers.size())));
+        }
+        return comparisons.stream().filter(retained::contains).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the similarity of a comparison according to the similarity metric.
+     */
+    protected float getSimilarity(JPlagComparison comparison) {
+        switch (this.options.getSimilarityMetric()) {
+        case MAX:
+            return comparison.percentMaxAB();
+        case MIN:
+            return comparison.percentMinAB();
+        default:
+            return comparison.percent();
+        }
+    }
+
+    /**
+     * @return the similarity threshold, which is raised to the percentage of comparisons to store if configured.
+     */
+    protected float getSimilarityThreshold() {
+        if (options.isStorePercent()) {
+            return Math.max(options.getSimilarityThreshold(), options.getStoreMatches());
+        }
+        return options.getSimilarityThreshold();
+    }
+
+    private boolean isAboveSimilarityThreshold(JPlagComparison comparison, int numberOfMatchedTokens) {
+        float similarityThreshold = getSimilarityThreshold();
         SimilarityMetric similarityMetric = this.options.getSimilarityMetric();
 
         switch (similarityMetric) {
         case AVG:
-            return comparison.percent() >= similarityThreshold;
+            return comparison.percent(numberOfMatchedTokens) >= similarityThreshold;
         case MAX:
-            return comparison.percentMaxAB() >= similarityThreshold;
+            return comparison.percentMaxAB(numberOfMatchedTokens) >= similarityThreshold;
         case MIN:
-            return comparison.percentMinAB() >= similarityThreshold;
+            return comparison.percentMinAB(numberOfMatchedTokens) >= similarityThreshold;
         default:
             return true;
         }
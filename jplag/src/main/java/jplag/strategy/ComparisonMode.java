@@ -1,8 +1,43 @@
 package jplag.strategy;
 
+import java.util.Arrays;
+
 /**
  * The comparison mode determines which `ComparisonStrategy` is used to compare submissions.
  */
 public enum ComparisonMode {
-    NORMAL // TODO TS: Currently only one comparison strategy supported
-}
\ No newline at end of file
+    NORMAL("normal"),
+    PARALLEL("parallel"),
+    INDEXED("indexed"),
+    MINHASH("minhash"),
+    PREFIX_FILTER("prefix"),
+    INCREMENTAL("incremental"),
+    SCHEDULED("scheduled");
+
+    private final String displayName;
+
+    ComparisonMode(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return this.displayName;
+    }
+
+    public static ComparisonMode fromDisplayName(String displayName) {
+        return Arrays.stream(ComparisonMode.values())
+                .filter(comparisonMode -> comparisonMode.displayName.equals(displayName))
+                .findFirst()
+                .orElse(getDefault());
+    }
+
+    public static String[] getAllDisplayNames() {
+        return Arrays.stream(ComparisonMode.values())
+                .map(comparisonMode -> comparisonMode.displayName)
+                .toArray(String[]::new);
+    }
+
+    public static ComparisonMode getDefault() {
+        return ComparisonMode.NORMAL;
+    }
+}
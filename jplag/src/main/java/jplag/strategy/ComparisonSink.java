@@ -0,0 +1,18 @@
+package jplag.strategy;
+
+import jplag.JPlagComparison;
+
+/**
+ * Receives the comparisons of a {@link ComparisonStrategy} as soon as they are computed, so that they can be processed
+ * without keeping all of them in memory.
+ */
+@FunctionalInterface
+public interface ComparisonSink {
+
+    /**
+     * Receives a comparison whose similarity is above the similarity threshold. The comparisons are passed one at a time
+     * from the thread that started the comparison, in the order of the comparison result.
+     * @param comparison is the comparison.
+     */
+    void accept(JPlagComparison comparison);
+}
@@ -17,4 +17,18 @@ public interface ComparisonStrategy {
      * @return the comparison results.
      */
     JPlagResult compareSubmissions(Vector<Submission> submissions, Submission baseCodeSubmission);
+
+    /**
+     * Compares submissions from a set of submissions while considering a given base code, and passes the comparison
+     * results to a sink as soon as they are computed instead of collecting them.
+     * @param submissions is the set of submissions.
+     * @param baseCodeSubmission is the base code on which each submission is based on.
+     * @param sink receives the comparison results.
+     */
+    void compareSubmissions(Vector<Submission> submissions, Submission baseCodeSubmission, ComparisonSink sink);
+
+    /**
+     * Prints statistics of the last comparison of the submissions, if the strategy collects any.
+     */
+    void printStatistics();
 }
@@ -0,0 +1,58 @@
+package jplag.strategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+import java.util.function.Consumer;
+
+import jplag.GreedyStringTiling;
+import jplag.JPlagComparison;
+import jplag.ProgramI;
+import jplag.Submission;
+import jplag.options.JPlagOptions;
+
+/**
+ * Compares new submissions to each other and to the existing ones, but not the existing submissions to each other. This
+ * allows to screen submissions that arrive over time without comparing all pairs again. If a number of submissions to
+ * compare to is configured, only the most similar peers of every submission are kept.
+ */
+public class IncrementalComparisonStrategy extends AbstractComparisonStrategy {
+
+    public IncrementalComparisonStrategy(JPlagOptions options, GreedyStringTiling greedyStringTiling, ProgramI program) {
+        super(options, greedyStringTiling, program);
+    }
+
+    @Override
+    public void compareSubmissions(Vector<Submission> submissions, Submission baseCodeSubmission, ComparisonSink sink) {
+        if (baseCodeSubmission != null) {
+            compareSubmissionsToBaseCode(submissions, baseCodeSubmission);
+        }
+
+        int numberOfSubmissions = submissions.size();
+        int numberOfPeers = options.getNumberOfSubmissionsToCompareTo();
+        List<JPlagComparison> comparisons = new ArrayList<>(); // only used to determine the most similar peers
+        Consumer<JPlagComparison> consumer = (numberOfPeers > 0 ? comparisons::add : sink::accept);
+        int numberOfNewSubmissions = 0;
+        int numberOfPairs = 0;
+        for (int i = 0; i < numberOfSubmissions; i++) {
+            Submission first = submissions.elementAt(i);
+            if (first.isNew()) {
+                numberOfNewSubmissions++;
+            }
+            if (first.tokenList == null) {
+                continue;
+            }
+            for (int j = (i + 1); j < numberOfSubmissions; j++) {
+                Submission second = submissions.elementAt(j);
+                if (second.tokenList == null || !(first.isNew() || second.isNew())) {
+                    continue;
+                }
+                numberOfPairs++;
+                compareSubmissions(first, second, baseCodeSubmission).ifPresent(consumer);
+            }
+        }
+        program.print(null, "Compared " + numberOfNewSubmissions + " new to " + (numberOfSubmissions - numberOfNewSubmissions)
+                + " existing submissions: " + numberOfPairs + " pairs\n");
+        retainMostSimilarPeers(comparisons, numberOfPeers).forEach(sink::accept);
+    }
+}
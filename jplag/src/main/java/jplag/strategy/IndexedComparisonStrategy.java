@@ -0,0 +1,82 @@
+package jplag.strategy;
+
+import java.util.Vector;
+
+import jplag.GreedyStringTiling;
+import jplag.ProgramI;
+import jplag.Submission;
+import jplag.options.JPlagOptions;
+
+/**
+ * Compares only pairs of submissions that share at least one k-gram, where k is the minimum token match. A global
+ * inverted index maps every k-gram hash to the submissions that contain it. For every submission, one pass over the
+ * postings of its k-grams counts the shared k-grams with all following submissions.
+ * <p>
+ * Every match contains a shared k-gram, so a skipped pair has no matches. If the similarity threshold is positive, such
+ * a pair is below it and the result is identical to the one of the {@link NormalComparisonStrategy}. Without a
+ * similarity threshold (the default of -m 0), all pairs are part of the result, but only the candidates are tiled. The
+ * other pairs get a comparison without matches, which is identical to the one of the tiling.
+ */
+public class IndexedComparisonStrategy extends AbstractComparisonStrategy {
+
+    private int numberOfCandidates = 0;
+
+    public IndexedComparisonStrategy(JPlagOptions options, GreedyStringTiling greedyStringTiling, ProgramI program) {
+        super(options, greedyStringTiling, program);
+    }
+
+    @Override
+    public void compareSubmissions(Vector<Submission> submissions, Submission baseCodeSubmission, ComparisonSink sink) {
+        if (baseCodeSubmission != null) {
+            compareSubmissionsToBaseCode(submissions, baseCodeSubmission);
+        }
+
+        int numberOfSubmissions = submissions.size();
+
+        // 1. build the inverted index over the distinct k-grams of all submissions:
+        long[][] hashesOfSubmission = new long[numberOfSubmissions][];
+        for (int i = 0; i < numberOfSubmissions; i++) {
+            Submission submission = submissions.elementAt(i);
+            if (submission.tokenList != null) {
+                greedyStringTiling.prepareHashes(submission);
+                hashesOfSubmission[i] = greedyStringTiling.getDistinctHashes(submission);
+            }
+        }
+        KGramIndex index = new KGramIndex(hashesOfSubmission);
+
+        // 2. count the shared k-grams row by row and compare the candidate pairs:
+        boolean compareAllPairs = (getSimilarityThreshold() <= 0);
+        int[] sharedHashes = new int[numberOfSubmissions];
+        int numberOfCandidates = 0;
+        for (int i = 0; i < (numberOfSubmissions - 1); i++) {
+            Submission first = submissions.elementAt(i);
+            if (first.tokenList == null) {
+                continue;
+            }
+            index.countFollowers(hashesOfSubmission[i], i, sharedHashes);
+            for (int j = (i + 1); j < numberOfSubmissions; j++) {
+                Submission second = submissions.elementAt(j);
+                boolean isCandidate = (sharedHashes[j] > 0);
+                sharedHashes[j] = 0;
+                if (second.tokenList == null || !(isCandidate || compareAllPairs)) {
+                    continue;
+                }
+                if (isCandidate) {
+                    numberOfCandidates++;
+                    compareSubmissions(first, second, baseCodeSubmission).ifPresent(sink::accept);
+                } else {
+                    createComparisonWithoutMatches(first, second, baseCodeSubmission).ifPresent(sink::accept);
+                }
+            }
+        }
+        program.print(null, "Candidate pairs with shared k-grams: " + numberOfCandidates + "\n");
+        this.numberOfCandidates = numberOfCandidates;
+    }
+
+    /**
+     * @return the number of pairs of the last run that share a k-gram.
+     */
+    public int getNumberOfCandidates() {
+        return numberOfCandidates;
+    }
+}
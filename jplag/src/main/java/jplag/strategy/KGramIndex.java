@@ -0,0 +1,67 @@
+package jplag.strategy;
+
+import jplag.HashIndex;
+
+/**
+ * Inverted index that maps k-gram hashes to the submissions that contain them. The postings of a hash are ordered by
+ * submission index.
+ */
+final class KGramIndex {
+
+    private final HashIndex index;
+    private final int[] owners; // submission of every indexed hash
+
+    /**
+     * Creates the index.
+     * @param hashesOfSubmission contains the distinct hashes of every submission, or null for invalid submissions.
+     */
+    KGramIndex(long[][] hashesOfSubmission) {
+        int numberOfHashes = 0;
+        for (long[] hashes : hashesOfSubmission) {
+            numberOfHashes += (hashes == null ? 0 : hashes.length);
+        }
+        long[] allHashes = new long[numberOfHashes];
+        owners = new int[numberOfHashes];
+        int offset = 0;
+        for (int i = 0; i < hashesOfSubmission.length; i++) {
+            if (hashesOfSubmission[i] != null) {
+                System.arraycopy(hashesOfSubmission[i], 0, allHashes, offset, hashesOfSubmission[i].length);
+                for (int end = offset + hashesOfSubmission[i].length; offset < end; offset++) {
+                    owners[offset] = i;
+                }
+            }
+        }
+        index = new HashIndex(allHashes);
+    }
+
+    /**
+     * @return the number of submissions that contain a hash.
+     */
+    int getFrequency(long hash) {
+        int group = index.find(hash);
+        return (group == -1 ? 0 : index.end(group) - index.start(group));
+    }
+
+    /**
+     * Counts for all submissions behind a given submission how many of the given hashes they contain.
+     * @param hashes are the distinct hashes to look up.
+     * @param submission is the index of the submission whose followers are counted.
+     * @param counts is incremented for every submission and contained hash.
+     * @return the number of postings that were visited.
+     */
+    long countFollowers(long[] hashes, int submission, int[] counts) {
+        long visited = 0;
+        for (long hash : hashes) {
+            int group = index.find(hash);
+            if (group == -1) {
+                continue;
+            }
+            // positions are ascending, so the postings are ordered by submission:
+            for (int k = index.end(group) - 1; k >= index.start(group) && owners[index.position(k)] > submission; k--) {
+                counts[owners[index.position(k)]]++;
+                visited++;
+            }
+        }
+        return visited;
+    }
+}
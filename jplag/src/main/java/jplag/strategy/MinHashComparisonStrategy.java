@@ -0,0 +1,218 @@
+package jplag.strategy;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.Vector;
+
+import jplag.GreedyStringTiling;
+import jplag.HashIndex;
+import jplag.JPlagComparison;
+import jplag.ProgramI;
+import jplag.Submission;
+import jplag.options.JPlagOptions;
+
+/**
+ * Approximate strategy that compares only pairs of submissions with similar k-gram sets, where k is the minimum token
+ * match. Every submission gets a MinHash signature of its k-gram set, which is split into bands of rows. Two submissions
+ * are compared if all rows of at least one band are equal (locality-sensitive hashing). More bands or fewer rows find
+ * more similar pairs, but also more dissimilar ones.
+ * <p>
+ * Pairs that do not collide are not compared, so the result may miss pairs that the {@link NormalComparisonStrategy}
+ * reports. To validate the configuration, a random sample of pairs is also compared exhaustively, and the fraction of
+ * the sampled pairs above the similarity threshold with at least one match that were candidates is printed as estimated recall.
+ */
+public class MinHashComparisonStrategy extends AbstractComparisonStrategy {
+
+    private static final int RECALL_SAMPLE_SIZE = 1000;
+    private static final long SEED = 0x5DEECE66DL;
+
+    private int numberOfCandidates = 0;
+    private double estimatedRecall = -1;
+
+    public MinHashComparisonStrategy(JPlagOptions options, GreedyStringTiling greedyStringTiling, ProgramI program) {
+        super(options, greedyStringTiling, program);
+    }
+
+    @Override
+    public void compareSubmissions(Vector<Submission> submissions, Submission baseCodeSubmission, ComparisonSink sink) {
+        if (baseCodeSubmission != null) {
+            compareSubmissionsToBaseCode(submissions, baseCodeSubmission);
+        }
+
+        int numberOfSubmissions = submissions.size();
+        int bands = options.getMinHashBands();
+        int rows = options.getMinHashRows();
+
+        // 1. compute the signatures:
+        long[] seeds = new long[bands * rows];
+        Random random = new Random(SEED);
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = random.nextLong();
+        }
+        long[][] signatures = new long[numberOfSubmissions][];
+        for (int i = 0; i < numberOfSubmissions; i++) {
+            Submission submission = submissions.elementAt(i);
+            if (submission.tokenList != null) {
+                greedyStringTiling.prepareHashes(submission);
+                signatures[i] = signature(greedyStringTiling.getDistinctHashes(submission), seeds);
+            }
+        }
+
+        // 2. collect the pairs that share a bucket in at least one band:
+        BitSet[] candidates = new BitSet[numberOfSubmissions];
+        for (int i = 0; i < numberOfSubmissions; i++) {
+            candidates[i] = new BitSet();
+        }
+        long[] bucketKeys = new long[numberOfSubmissions];
+        for (int band = 0; band < bands; band++) {
+            for (int i = 0; i < numberOfSubmissions; i++) {
+                bucketKeys[i] = (signatures[i] == null ? HashIndex.NO_HASH : bucketKey(signatures[i], band, rows));
+            }
+            HashIndex buckets = new HashIndex(bucketKeys);
+            for (int group = 0; group < buckets.getNumberOfGroups(); group++) {
+                for (int k = buckets.start(group); k < buckets.end(group); k++) {
+                    for (int l = k + 1; l < buckets.end(group); l++) {
+                        candidates[buckets.position(k)].set(buckets.position(l)); // positions are ascending
+                    }
+                }
+            }
+        }
+
+        // 3. compare the candidates in the same order as the normal strategy:
+        Set<Long> sample = samplePairs(submissions);
+        int sampledPairsAbove = 0;
+        int sampledCandidatesAbove = 0;
+        int numberOfCandidates = 0;
+        for (int i = 0; i < (numberOfSubmissions - 1); i++) {
+            Submission first = submissions.elementAt(i);
+            for (int j = candidates[i].nextSetBit(i + 1); j >= 0; j = candidates[i].nextSetBit(j + 1)) {
+                numberOfCandidates++;
+                Optional<JPlagComparison> comparison = compareSubmissions(first, submissions.elementAt(j), baseCodeSubmission);
+                comparison.ifPresent(sink::accept);
+                if (isSimilar(comparison) && sample.remove(pairKey(i, j, numberOfSubmissions))) {
+                    sampledPairsAbove++;
+                    sampledCandidatesAbove++;
+                }
+            }
+        }
+        program.print(null, "Candidate pairs of the MinHash buckets: " + numberOfCandidates + "\n");
+        this.numberOfCandidates = numberOfCandidates;
+
+        // 4. estimate the recall with the sampled pairs that are no candidates:
+        for (long pair : sample) {
+            int i = (int) (pair / numberOfSubmissions);
+            int j = (int) (pair % numberOfSubmissions);
+            if (!candidates[i].get(j)
+                    && isSimilar(compareSubmissions(submissions.elementAt(i), submissions.elementAt(j), baseCodeSubmission))) {
+                sampledPairsAbove++;
+            }
+        }
+        if (sampledPairsAbove > 0) {
+            estimatedRecall = (double) sampledCandidatesAbove / sampledPairsAbove;
+            program.print("Estimated recall of the MinHash candidates: "
+                    + String.format("%.1f", 100 * estimatedRecall) + "% (" + sampledCandidatesAbove
+                    + " of " + sampledPairsAbove + " sampled pairs above the similarity threshold)\n", null);
+        } else {
+            estimatedRecall = -1;
+            program.print("Estimated recall of the MinHash candidates: unknown (no sampled pair above the similarity threshold)\n", null);
+        }
+    }
+
+    /**
+     * @return the number of pairs of the last run that share a bucket in at least one band.
+     */
+    public int getNumberOfCandidates() {
+        return numberOfCandidates;
+    }
+
+    /**
+     * @return the fraction of the sampled similar pairs of the last run that were candidates, or -1 if no sampled pair was
+     * similar.
+     */
+    public double getEstimatedRecall() {
+        return estimatedRecall;
+    }
+
+    /**
+     * A pair counts for the recall if it is above the similarity threshold and has at least one match. Without a
+     * threshold, every pair is above it, even the ones that share nothing and thus cannot be found by any bucket.
+     */
+    private static boolean isSimilar(Optional<JPlagComparison> comparison) {
+        return comparison.isPresent() && comparison.get().getNumberOfMatchedTokens() > 0;
+    }
+
+    /**
+     * Computes the MinHash signature of a set of k-gram hashes. Submissions without k-grams have no signature, as they
+     * cannot match anything.
+     */
+    private static long[] signature(long[] hashes, long[] seeds) {
+        if (hashes.length == 0) {
+            return null;
+        }
+        long[] signature = new long[seeds.length];
+        for (int i = 0; i < seeds.length; i++) {
+            long minimum = Long.MAX_VALUE;
+            for (long hash : hashes) {
+                minimum = Math.min(minimum, mix(hash ^ seeds[i]));
+            }
+            signature[i] = minimum;
+        }
+        return signature;
+    }
+
+    private static long bucketKey(long[] signature, int band, int rows) {
+        long key = 0;
+        for (int row = band * rows; row < (band + 1) * rows; row++) {
+            key = mix(key + signature[row]);
+        }
+        return (key != HashIndex.NO_HASH ? key : key + 1);
+    }
+
+    /* Final mixing step of SplitMix64, a bijection that spreads the bits of the input over the output. */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Draws a random sample of pairs of valid submissions, or all pairs if there are not many more.
+     */
+    private static Set<Long> samplePairs(Vector<Submission> submissions) {
+        int numberOfSubmissions = submissions.size();
+        List<Integer> valid = new ArrayList<>();
+        for (int i = 0; i < numberOfSubmissions; i++) {
+            if (submissions.elementAt(i).tokenList != null) {
+                valid.add(i);
+            }
+        }
+        Set<Long> sample = new HashSet<>();
+        long numberOfPairs = (long) valid.size() * (valid.size() - 1) / 2;
+        if (numberOfPairs <= 2 * RECALL_SAMPLE_SIZE) {
+            for (int k = 0; k < valid.size(); k++) {
+                for (int l = k + 1; l < valid.size(); l++) {
+                    sample.add(pairKey(valid.get(k), valid.get(l), numberOfSubmissions));
+                }
+            }
+            return sample;
+        }
+        Random random = new Random(SEED);
+        while (sample.size() < RECALL_SAMPLE_SIZE) {
+            int k = random.nextInt(valid.size());
+            int l = random.nextInt(valid.size());
+            if (k != l) {
+                sample.add(pairKey(valid.get(Math.min(k, l)), valid.get(Math.max(k, l)), numberOfSubmissions));
+            }
+        }
+        return sample;
+    }
+
+    private static long pairKey(int i, int j, int numberOfSubmissions) {
+        return (long) i * numberOfSubmissions + j;
+    }
+}
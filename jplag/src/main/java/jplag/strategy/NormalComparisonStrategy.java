@@ -1,35 +1,29 @@
 package jplag.strategy;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Vector;
 import java.time.LocalTime;
 
 import jplag.GreedyStringTiling;
-import jplag.JPlagComparison;
-import jplag.JPlagResult;
+import jplag.ProgramI;
 import jplag.Submission;
 import jplag.options.JPlagOptions;
 
 public class NormalComparisonStrategy extends AbstractComparisonStrategy {
 
-    public NormalComparisonStrategy(JPlagOptions options, GreedyStringTiling greedyStringTiling) {
-        super(options, greedyStringTiling);
+    public NormalComparisonStrategy(JPlagOptions options, GreedyStringTiling greedyStringTiling, ProgramI program) {
+        super(options, greedyStringTiling, program);
     }
 
     @Override
-    public JPlagResult compareSubmissions(Vector<Submission> submissions, Submission baseCodeSubmission) {
+    public void compareSubmissions(Vector<Submission> submissions, Submission baseCodeSubmission, ComparisonSink sink) {
         // 考虑基础代码
         if (baseCodeSubmission != null) {
             compareSubmissionsToBaseCode(submissions, baseCodeSubmission);
         }
 
         LocalTime StartTime = LocalTime.now();
-        long timeBeforeStartInMillis = System.currentTimeMillis();
         int i, j, numberOfSubmissions = submissions.size();
         Submission first, second;
-        List<JPlagComparison> comparisons = new ArrayList<>();
-        JPlagComparison comparison;
         // 调用GST进行相似度比较，在命令行输出结果
         for (i = 0; i < (numberOfSubmissions - 1); i++) {
             first = submissions.elementAt(i);
@@ -41,26 +35,13 @@ public class NormalComparisonStrategy extends AbstractComparisonStrategy {
                 if (second.tokenList == null) {
                     continue;
                 }
-                comparison = greedyStringTiling.compare(first, second);
-
-                // TODO SH: Why does this differ from the results shown in the result web page?
-                System.out.println("Comparing " + first.name + "-" + second.name + ": " + comparison.percent());
-                // 考虑基础代码和相似度阈值
-                if (baseCodeSubmission != null) {
-                    comparison.bcMatchesA = baseCodeMatches.get(comparison.firstSubmission.name);
-                    comparison.bcMatchesB = baseCodeMatches.get(comparison.secondSubmission.name);
-                }
-                if (isAboveSimilarityThreshold(comparison)) {
-                    comparisons.add(comparison);
-                }
+                compareSubmissions(first, second, baseCodeSubmission).ifPresent(sink::accept);
             }
         }
         
         LocalTime currentTime = LocalTime.now();
         // 运行时间
-        long durationInMillis = System.currentTimeMillis() - timeBeforeStartInMillis;
         System.out.println(" -开始时间:" + StartTime + " -结束时间:" + currentTime);
-        return new JPlagResult(comparisons, durationInMillis, numberOfSubmissions, options);
     }
 
 }
@@ -0,0 +1,90 @@
+package jplag.strategy;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jplag.GreedyStringTiling;
+import jplag.JPlagComparison;
+import jplag.ProgramI;
+import jplag.Submission;
+import jplag.options.JPlagOptions;
+
+/**
+ * Compares all pairs of submissions like the {@link NormalComparisonStrategy}, but distributes the comparisons over a
+ * pool of worker threads. Each row of the comparison matrix is one task, and the results are passed on in row order.
+ * Thus, the result is identical to the one of the sequential strategy.
+ */
+public class ParallelComparisonStrategy extends AbstractComparisonStrategy {
+
+    private static final int ROWS_PER_THREAD = 4;
+
+    public ParallelComparisonStrategy(JPlagOptions options, GreedyStringTiling greedyStringTiling, ProgramI program) {
+        super(options, greedyStringTiling, program);
+    }
+
+    @Override
+    public void compareSubmissions(Vector<Submission> submissions, Submission baseCodeSubmission, ComparisonSink sink) {
+        if (baseCodeSubmission != null) {
+            compareSubmissionsToBaseCode(submissions, baseCodeSubmission);
+        }
+
+        int numberOfSubmissions = submissions.size();
+
+        // The token lists are shared between the workers and must not be written during the comparisons:
+        for (Submission submission : submissions) {
+            if (submission.tokenList != null) {
+                greedyStringTiling.prepareHashes(submission);
+            }
+        }
+
+        // Only a few rows per thread are in flight, so finished rows do not pile up while the sink consumes earlier ones:
+        int maximumPendingRows = ROWS_PER_THREAD * options.getNumberOfThreads();
+        ExecutorService executor = Executors.newFixedThreadPool(options.getNumberOfThreads());
+        Deque<Future<List<JPlagComparison>>> pendingRows = new ArrayDeque<>();
+        try {
+            for (int i = 0; i < (numberOfSubmissions - 1); i++) {
+                int row = i;
+                pendingRows.add(executor.submit(() -> compareRow(submissions, row, baseCodeSubmission)));
+                if (pendingRows.size() >= maximumPendingRows) {
+                    pendingRows.remove().get().forEach(sink::accept);
+                }
+            }
+            while (!pendingRows.isEmpty()) {
+                pendingRows.remove().get().forEach(sink::accept);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while comparing submissions", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Comparing submissions failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Compares a submission with all submissions that follow it.
+     */
+    private List<JPlagComparison> compareRow(Vector<Submission> submissions, int row, Submission baseCodeSubmission) {
+        List<JPlagComparison> comparisons = new ArrayList<>();
+        Submission first = submissions.elementAt(row);
+        if (first.tokenList == null) {
+            return comparisons;
+        }
+        for (int j = (row + 1); j < submissions.size(); j++) {
+            Submission second = submissions.elementAt(j);
+            if (second.tokenList == null) {
+                continue;
+            }
+            compareSubmissions(first, second, baseCodeSubmission).ifPresent(comparisons::add);
+        }
+        return comparisons;
+    }
+}
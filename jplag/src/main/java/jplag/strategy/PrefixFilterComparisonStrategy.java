@@ -0,0 +1,196 @@
+package jplag.strategy;
+
+import java.util.Arrays;
+import java.util.Vector;
+
+import jplag.GreedyStringTiling;
+import jplag.JPlagBaseCodeComparison;
+import jplag.ProgramI;
+import jplag.Submission;
+import jplag.options.JPlagOptions;
+import jplag.options.SimilarityMetric;
+
+/**
+ * Exact strategy that compares only pairs of submissions that can reach the similarity threshold, using prefix
+ * filtering over k-gram sets (see the AllPairs and PPJoin similarity joins), where k is the minimum token match.
+ * <p>
+ * Every matched token lies in a window whose k-gram occurs in both submissions, so a comparison matches at most k tokens
+ * per such window. The similarity threshold requires a minimum number of matched tokens, which is bounded from below by
+ * the size of each submission (for {@link SimilarityMetric#MAX MAX} only by the size of the smaller
+ * one). Thus, a submission needs at least a certain number of windows whose k-grams also occur in the other one. If the
+ * k-grams of all submissions are ordered by their frequency, the first common k-gram of two submissions lies in the
+ * prefix of each k-gram list that carries at least this number of windows behind it. Pairs whose prefixes do not
+ * intersect are below the threshold and are not compared, so the result is identical to the one of the
+ * {@link NormalComparisonStrategy}.
+ */
+public class PrefixFilterComparisonStrategy extends AbstractComparisonStrategy {
+
+    private static final double ROUNDING_TOLERANCE = 1e-6; // relative error of the float similarities
+
+    private long numberOfPairs = 0;
+    private long numberOfCandidates = 0;
+
+    public PrefixFilterComparisonStrategy(JPlagOptions options, GreedyStringTiling greedyStringTiling, ProgramI program) {
+        super(options, greedyStringTiling, program);
+    }
+
+    @Override
+    public void compareSubmissions(Vector<Submission> submissions, Submission baseCodeSubmission, ComparisonSink sink) {
+        if (baseCodeSubmission != null) {
+            compareSubmissionsToBaseCode(submissions, baseCodeSubmission);
+        }
+
+        int numberOfSubmissions = submissions.size();
+
+        // 1. collect the k-grams and the number of windows of every k-gram:
+        long[][] hashesOfSubmission = new long[numberOfSubmissions][];
+        int[][] windowsOfSubmission = new int[numberOfSubmissions][];
+        for (int i = 0; i < numberOfSubmissions; i++) {
+            Submission submission = submissions.elementAt(i);
+            if (submission.tokenList != null) {
+                greedyStringTiling.prepareHashes(submission);
+                long[] hashes = greedyStringTiling.getMatchableHashes(submission);
+                hashesOfSubmission[i] = greedyStringTiling.getDistinctHashes(submission);
+                windowsOfSubmission[i] = countWindows(hashes, hashesOfSubmission[i]);
+            }
+        }
+        KGramIndex index = new KGramIndex(hashesOfSubmission);
+
+        // 2. compute the prefixes of the k-gram lists in order of increasing frequency:
+        float similarityThreshold = getSimilarityThreshold();
+        // the similarity threshold requires at least this fraction of the tokens of each (smaller) submission to match:
+        double requiredFraction = similarityThreshold / (options.getSimilarityMetric() == SimilarityMetric.AVG ? 200.0 : 100.0);
+        int hashLength = greedyStringTiling.getHashLength();
+        int[] sizes = new int[numberOfSubmissions];
+        long[][] prefixes = new long[numberOfSubmissions][];
+        long numberOfHashes = 0;
+        long numberOfPrefixHashes = 0;
+        for (int i = 0; i < numberOfSubmissions; i++) {
+            if (hashesOfSubmission[i] == null) {
+                continue;
+            }
+            sizes[i] = getSize(submissions.elementAt(i), baseCodeSubmission);
+            int requiredTokens = Math.max(1, (int) Math.floor(requiredFraction * sizes[i] * (1 - ROUNDING_TOLERANCE)));
+            int requiredWindows = (requiredTokens + hashLength - 1) / hashLength;
+            prefixes[i] = prefix(hashesOfSubmission[i], windowsOfSubmission[i], requiredWindows, index);
+            numberOfHashes += hashesOfSubmission[i].length;
+            numberOfPrefixHashes += prefixes[i].length;
+        }
+        KGramIndex prefixIndex = new KGramIndex(prefixes);
+
+        // 3. compare the pairs with intersecting prefixes in the same order as the normal strategy:
+        boolean compareAllPairs = (similarityThreshold <= 0);
+        boolean isMaximum = (options.getSimilarityMetric() == SimilarityMetric.MAX);
+        int[] sharedPrefixHashes = new int[numberOfSubmissions];
+        int[] sharedHashes = new int[numberOfSubmissions];
+        long numberOfPairs = 0;
+        long numberOfCandidates = 0;
+        long visitedPostings = 0;
+        for (int i = 0; i < (numberOfSubmissions - 1); i++) {
+            Submission first = submissions.elementAt(i);
+            if (first.tokenList == null) {
+                continue;
+            }
+            if (!compareAllPairs) {
+                if (isMaximum) {
+                    // only the prefix of the smaller submission has to intersect the k-grams of the other one:
+                    visitedPostings += index.countFollowers(prefixes[i], i, sharedHashes);
+                    visitedPostings += prefixIndex.countFollowers(hashesOfSubmission[i], i, sharedPrefixHashes);
+                } else {
+                    visitedPostings += prefixIndex.countFollowers(prefixes[i], i, sharedPrefixHashes);
+                }
+            }
+            for (int j = (i + 1); j < numberOfSubmissions; j++) {
+                boolean isCandidate = (sharedPrefixHashes[j] > 0 && (!isMaximum || sizes[j] <= sizes[i]))
+                        || (sharedHashes[j] > 0 && sizes[i] <= sizes[j]);
+                sharedPrefixHashes[j] = 0;
+                sharedHashes[j] = 0;
+                Submission second = submissions.elementAt(j);
+                if (second.tokenList == null) {
+                    continue;
+                }
+                numberOfPairs++;
+                if (isCandidate || compareAllPairs) {
+                    numberOfCandidates++;
+                    compareSubmissions(first, second, baseCodeSubmission).ifPresent(sink::accept);
+                }
+            }
+        }
+        program.print(null, "Prefix filter: " + numberOfCandidates + " of " + numberOfPairs + " pairs are candidates ("
+                + String.format("%.1f", numberOfPairs > 0 ? 100.0 * (numberOfPairs - numberOfCandidates) / numberOfPairs : 0.0)
+                + "% pruned), prefixes hold " + numberOfPrefixHashes + " of " + numberOfHashes + " k-grams, " + visitedPostings
+                + " postings visited\n");
+        this.numberOfPairs = numberOfPairs;
+        this.numberOfCandidates = numberOfCandidates;
+    }
+
+    /**
+     * @return the number of pairs of valid submissions of the last run.
+     */
+    public long getNumberOfPairs() {
+        return numberOfPairs;
+    }
+
+    /**
+     * @return the number of pairs of the last run whose prefixes intersect, which were compared.
+     */
+    public long getNumberOfCandidates() {
+        return numberOfCandidates;
+    }
+
+    /**
+     * @return the number of tokens a similarity of a submission refers to, as in {@link JPlagComparison#percentA()}.
+     */
+    private int getSize(Submission submission, Submission baseCodeSubmission) {
+        int size = submission.getNumberOfTokens() - submission.files.size();
+        if (baseCodeSubmission != null) {
+            JPlagBaseCodeComparison baseCodeMatch = baseCodeMatches.get(submission.name);
+            size -= (baseCodeMatch == null ? 0 : baseCodeMatch.getNumberOfMatchedTokens());
+        }
+        return size;
+    }
+
+    /**
+     * Counts the windows of every distinct hash.
+     * @param hashes are the hashes of all windows in ascending order.
+     * @param distinctHashes are the distinct hashes in ascending order.
+     */
+    private static int[] countWindows(long[] hashes, long[] distinctHashes) {
+        int[] windows = new int[distinctHashes.length];
+        int k = 0;
+        for (long hash : hashes) {
+            while (distinctHashes[k] != hash) {
+                k++;
+            }
+            windows[k]++;
+        }
+        return windows;
+    }
+
+    /**
+     * Determines the prefix of a k-gram list ordered by increasing frequency that contains every k-gram with at least the
+     * required number of windows at or behind it. Ties are ordered by hash.
+     */
+    private static long[] prefix(long[] hashes, int[] windows, int requiredWindows, KGramIndex index) {
+        long[] order = new long[hashes.length]; // frequency in the upper half, position in the lower half
+        for (int k = 0; k < hashes.length; k++) {
+            order[k] = ((long) index.getFrequency(hashes[k]) << 32) | k;
+        }
+        Arrays.sort(order);
+        int remainingWindows = 0;
+        for (int window : windows) {
+            remainingWindows += window;
+        }
+        long[] prefix = new long[hashes.length];
+        int length = 0;
+        for (long entry : order) {
+            if (remainingWindows < requiredWindows) {
+                break;
+            }
+            int k = (int) entry;
+            prefix[length++] = hashes[k];
+            remainingWindows -= windows[k];
+        }
+        return Arrays.copyOf(prefix, length);
+    }
+}
@@ -0,0 +1,211 @@
+package jplag.strategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jplag.GreedyStringTiling;
+import jplag.JPlagComparison;
+import jplag.ProgramI;
+import jplag.Submission;
+import jplag.options.JPlagOptions;
+
+/**
+ * Compares all pairs of submissions like the {@link NormalComparisonStrategy}, but schedules them by their expected
+ * cost. The pairs are processed in windows of consecutive pairs. Within a window, the pairs are sorted from the most to
+ * the least expensive one, and each idle worker thread takes the next pair of this list. Thus, a few very large
+ * submissions are compared first instead of stalling the end of the window, and the cheap pairs fill the gaps.
+ * <p>
+ * The cost of a pair is estimated from the numbers of tokens and the hash indexes of both submissions: Each round of the
+ * tiling scans both token lists and verifies the hash hits, which are bounded by sqrt(c1 * c2) for the numbers c1 and c2
+ * of position pairs with equal hashes within each submission. The correlation of the expected costs and the actual times
+ * is accumulated during the run, see {@link #getCostCorrelation()}.
+ * <p>
+ * After each window, the comparisons are passed on in the order of the pairs, so the result is identical to the one of
+ * the sequential strategy. Only the comparisons of one window are retained at once. The trade-off is that an expensive
+ * pair is only moved to the front of its own window, so the workers may still idle at the end of a window.
+ */
+public class ScheduledComparisonStrategy extends AbstractComparisonStrategy {
+
+    private static final int PAIRS_PER_THREAD = 256;
+
+    private long numberOfPairs = 0;
+    private double sumOfExpected = 0;
+    private double sumOfActual = 0;
+    private double sumOfExpectedSquares = 0;
+    private double sumOfActualSquares = 0;
+    private double sumOfProducts = 0;
+
+    public ScheduledComparisonStrategy(JPlagOptions options, GreedyStringTiling greedyStringTiling, ProgramI program) {
+        super(options, greedyStringTiling, program);
+    }
+
+    @Override
+    public void compareSubmissions(Vector<Submission> submissions, Submission baseCodeSubmission, ComparisonSink sink) {
+        if (baseCodeSubmission != null) {
+            compareSubmissionsToBaseCode(submissions, baseCodeSubmission);
+        }
+
+        // The token lists are shared between the workers and must not be written during the comparisons:
+        List<Submission> valid = new ArrayList<>();
+        for (Submission submission : submissions) {
+            if (submission.tokenList != null) {
+                greedyStringTiling.prepareHashes(submission);
+                valid.add(submission);
+            }
+        }
+        long[] hashPairs = new long[valid.size()];
+        for (int i = 0; i < valid.size(); i++) {
+            hashPairs[i] = greedyStringTiling.getNumberOfHashPairs(valid.get(i));
+        }
+        numberOfPairs = 0;
+        sumOfExpected = sumOfActual = sumOfExpectedSquares = sumOfActualSquares = sumOfProducts = 0;
+
+        int numberOfThreads = Math.max(1, options.getNumberOfThreads());
+        int windowSize = PAIRS_PER_THREAD * numberOfThreads;
+        ExecutorService executor = (numberOfThreads > 1 ? Executors.newFixedThreadPool(numberOfThreads) : null);
+        try {
+            List<Pair> window = new ArrayList<>(windowSize);
+            for (int i = 0; i < (valid.size() - 1); i++) {
+                for (int j = (i + 1); j < valid.size(); j++) {
+                    window.add(new Pair(window.size(), valid.get(i), valid.get(j), estimateCost(valid.get(i), valid.get(j), hashPairs[i], hashPairs[j])));
+                    if (window.size() == windowSize) {
+                        compareWindow(window, baseCodeSubmission, sink, executor, numberOfThreads);
+                        window.clear();
+                    }
+                }
+            }
+            compareWindow(window, baseCodeSubmission, sink, executor, numberOfThreads);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Compares the pairs of a window, the most expensive first, and passes on their comparisons in the order of the pairs.
+     */
+    private void compareWindow(List<Pair> window, Submission baseCodeSubmission, ComparisonSink sink, ExecutorService executor,
+            int numberOfThreads) {
+        // 1. sort the pairs by their expected cost, the most expensive first:
+        Pair[] schedule = window.toArray(new Pair[0]);
+        Arrays.sort(schedule, Comparator.comparingLong((Pair pair) -> pair.expectedCost).reversed().thenComparingInt(pair -> pair.index));
+
+        // 2. let the workers take the next pair of the schedule until all are compared:
+        AtomicInteger nextPair = new AtomicInteger();
+        Runnable worker = () -> {
+            for (int k = nextPair.getAndIncrement(); k < schedule.length; k = nextPair.getAndIncrement()) {
+                Pair pair = schedule[k];
+                long start = System.nanoTime();
+                pair.comparison = compareSubmissions(pair.first, pair.second, baseCodeSubmission).orElse(null);
+                pair.actualNanos = System.nanoTime() - start;
+            }
+        };
+        if (executor == null || schedule.length <= 1) {
+            worker.run();
+        } else {
+            runWorkers(executor, worker, Math.min(numberOfThreads, schedule.length));
+        }
+
+        // 3. pass on the comparisons in the order of the pairs:
+        for (Pair pair : window) {
+            addCost(pair.expectedCost, pair.actualNanos);
+            if (pair.comparison != null) {
+                sink.accept(pair.comparison);
+            }
+        }
+    }
+
+    @Override
+    public void printStatistics() {
+        program.print(null, "Scheduled pairs: " + numberOfPairs + ", correlation of expected and actual cost: "
+                + String.format("%.2f", getCostCorrelation()) + "\n");
+    }
+
+    /**
+     * @return the number of pairs of the last run, whatever their similarity.
+     */
+    public long getNumberOfPairs() {
+        return numberOfPairs;
+    }
+
+    /**
+     * @return the Pearson correlation of the expected costs and the actual times of the pairs of the last run, which is
+     * close to 1 if the cost model ranks the pairs well, or 0 if there are less than two pairs.
+     */
+    public double getCostCorrelation() {
+        if (numberOfPairs < 2) {
+            return 0;
+        }
+        double covariance = sumOfProducts - sumOfExpected * sumOfActual / numberOfPairs;
+        double varianceExpected = sumOfExpectedSquares - sumOfExpected * sumOfExpected / numberOfPairs;
+        double varianceActual = sumOfActualSquares - sumOfActual * sumOfActual / numberOfPairs;
+        if (varianceExpected <= 0 || varianceActual <= 0) {
+            return 0;
+        }
+        return covariance / Math.sqrt(varianceExpected * varianceActual);
+    }
+
+    private void addCost(double expected, double actual) {
+        numberOfPairs++;
+        sumOfExpected += expected;
+        sumOfActual += actual;
+        sumOfExpectedSquares += expected * expected;
+        sumOfActualSquares += actual * actual;
+        sumOfProducts += expected * actual;
+    }
+
+    /**
+     * Estimates the number of token operations of one round of the tiling of a pair: the scan over both token lists plus
+     * the bound of the hash hits.
+     */
+    private static long estimateCost(Submission first, Submission second, long hashPairsOfFirst, long hashPairsOfSecond) {
+        long hashHits = (long) Math.sqrt((double) hashPairsOfFirst * hashPairsOfSecond);
+        return first.getNumberOfTokens() + second.getNumberOfTokens() + hashHits;
+    }
+
+    private void runWorkers(ExecutorService executor, Runnable worker, int numberOfThreads) {
+        List<Future<?>> workers = new ArrayList<>();
+        try {
+            for (int i = 0; i < numberOfThreads; i++) {
+                workers.add(executor.submit(worker));
+            }
+            for (Future<?> future : workers) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while comparing submissions", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Comparing submissions failed", e.getCause());
+        }
+    }
+
+    /**
+     * A pair of submissions with its position in the order of the pairs of its window. The fields that the workers write
+     * are read after the workers finished.
+     */
+    private static final class Pair {
+        final int index;
+        final Submission first;
+        final Submission second;
+        final long expectedCost;
+        JPlagComparison comparison;
+        long actualNanos;
+
+        Pair(int index, Submission first, Submission second, long expectedCost) {
+            this.index = index;
+            this.first = first;
+            this.second = second;
+            this.expectedCost = expectedCost;
+        }
+    }
+}
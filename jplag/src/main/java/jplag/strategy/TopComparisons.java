@@ -0,0 +1,78 @@
+package jplag.strategy;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToDoubleFunction;
+
+import jplag.JPlagComparison;
+
+/**
+ * Keeps the most similar comparisons passed to it in a bounded min-heap, so the memory depends on the number of kept
+ * comparisons instead of the number of pairs. Ties keep the earlier comparison.
+ */
+public class TopComparisons implements ComparisonSink {
+
+    private final int maximumSize;
+    private final ToDoubleFunction<JPlagComparison> similarity;
+    private final Comparator<Entry> order;
+    private final PriorityQueue<Entry> heap;
+    private long numberOfReceivedComparisons = 0;
+
+    /**
+     * @param maximumSize is the number of comparisons to keep, at least 1.
+     * @param similarity determines the similarity of a comparison.
+     */
+    public TopComparisons(int maximumSize, ToDoubleFunction<JPlagComparison> similarity) {
+        this.maximumSize = maximumSize;
+        this.similarity = similarity;
+        // the root is the least similar comparison, and the later one of equally similar comparisons:
+        this.order = Comparator.comparingDouble((Entry entry) -> entry.similarity)
+                .thenComparing(Comparator.comparingLong((Entry entry) -> entry.index).reversed());
+        this.heap = new PriorityQueue<>(Math.min(maximumSize, 1024), order);
+    }
+
+    @Override
+    public void accept(JPlagComparison comparison) {
+        Entry entry = new Entry(comparison, similarity.applyAsDouble(comparison), numberOfReceivedComparisons++);
+        if (heap.size() < maximumSize) {
+            heap.add(entry);
+        } else if (order.compare(entry, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(entry);
+        }
+    }
+
+    /**
+     * @return the kept comparisons, the most similar one first.
+     */
+    public List<JPlagComparison> getComparisons() {
+        List<Entry> entries = new ArrayList<>(heap);
+        entries.sort(order.reversed());
+        List<JPlagComparison> comparisons = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            comparisons.add(entry.comparison);
+        }
+        return comparisons;
+    }
+
+    /**
+     * @return the number of comparisons passed to this sink, including the ones that were not kept.
+     */
+    public long getNumberOfReceivedComparisons() {
+        return numberOfReceivedComparisons;
+    }
+
+    private static final class Entry {
+        final JPlagComparison comparison;
+        final double similarity;
+        final long index;
+
+        Entry(JPlagComparison comparison, double similarity, long index) {
+            this.comparison = comparison;
+            this.similarity = similarity;
+            this.index = index;
+        }
+    }
+}
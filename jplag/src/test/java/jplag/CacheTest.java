@@ -0,0 +1,85 @@
+package jplag;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import jplag.options.JPlagOptions;
+import jplag.options.LanguageOption;
+
+public class CacheTest extends TestBase {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSameResultWithCache() throws ExitException, IOException {
+        File cacheDirectory = folder.newFolder("cache");
+        JPlagResult expected = runJPlagWithDefaultOptions("SimpleDuplicate");
+        String cachePath = cacheDirectory.getPath();
+        JPlagResult coldResult = runJPlag("SimpleDuplicate", options -> options.setTokenCacheDirectory(cachePath));
+        JPlagResult warmResult = runJPlag("SimpleDuplicate", options -> options.setTokenCacheDirectory(cachePath));
+
+        assertSameComparisons(expected, coldResult);
+        assertSameComparisons(expected, warmResult);
+    }
+
+    @Test
+    public void testWarmRunHitsAllComparedPairs() throws ExitException, IOException {
+        String cachePath = folder.newFolder("cache").getPath();
+        Consumer<JPlagOptions> configuration = options -> {
+            options.setTokenCacheDirectory(cachePath);
+            options.setSimilarityThreshold(50);
+        };
+        JPlagResult expected = createJPlag("Texts", LanguageOption.CHAR, options -> options.setSimilarityThreshold(50)).run();
+        JPlag cold = createJPlag("Texts", LanguageOption.CHAR, configuration);
+        JPlagResult coldResult = cold.run();
+        JPlag warm = createJPlag("Texts", LanguageOption.CHAR, configuration);
+        JPlagResult warmResult = warm.run();
+
+        assertSameComparisons(expected, coldResult);
+        assertSameComparisons(expected, warmResult);
+        long comparedPairs = cold.getComparisonCache().getNumberOfMisses();
+        assertEquals(0, cold.getComparisonCache().getNumberOfHits());
+        assertTrue(comparedPairs > expected.getComparisons().size()); // also the aborted comparisons are cached
+        assertEquals(comparedPairs, warm.getComparisonCache().getNumberOfHits());
+        assertEquals(0, warm.getComparisonCache().getNumberOfMisses());
+    }
+
+    @Test
+    public void testTighterBoundIsCached() throws ExitException, IOException {
+        // same characters in reverse order, so the histograms allow any similarity, but no substring matches:
+        File submissionDirectory = folder.newFolder("submissions");
+        createSubmission(submissionDirectory, "A", "the quick brown fox jumps over the lazy dog");
+        createSubmission(submissionDirectory, "B", "god yzal eht revo spmuj xof nworb kciuq eht");
+        String cachePath = folder.newFolder("cache").getPath();
+
+        JPlag higherThreshold = runJPlagWithCache(submissionDirectory, cachePath, 50);
+        assertEquals(1, higherThreshold.getComparisonCache().getNumberOfMisses());
+        // the bound of the higher threshold does not suffice, so the pair is compared again and keeps the tighter bound:
+        JPlag lowerThreshold = runJPlagWithCache(submissionDirectory, cachePath, 40);
+        assertEquals(0, lowerThreshold.getComparisonCache().getNumberOfHits());
+        assertEquals(1, lowerThreshold.getComparisonCache().getNumberOfMisses());
+        JPlag sameThreshold = runJPlagWithCache(submissionDirectory, cachePath, 40);
+        assertEquals(1, sameThreshold.getComparisonCache().getNumberOfHits());
+        assertEquals(0, sameThreshold.getComparisonCache().getNumberOfMisses());
+    }
+
+    private static JPlag runJPlagWithCache(File submissionDirectory, String cachePath, float similarityThreshold)
+            throws ExitException {
+        JPlagOptions options = new JPlagOptions(submissionDirectory.getPath(), LanguageOption.CHAR);
+        options.setMinTokenMatch(5);
+        options.setTokenCacheDirectory(cachePath);
+        options.setSimilarityThreshold(similarityThreshold);
+        JPlag jplag = new JPlag(options);
+        assertEquals(0, jplag.run().getComparisons().size());
+        return jplag;
+    }
+}
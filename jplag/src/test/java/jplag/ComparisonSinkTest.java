@@ -0,0 +1,36 @@
+package jplag;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import jplag.options.JPlagOptions;
+import jplag.options.LanguageOption;
+import jplag.strategy.ComparisonMode;
+
+public class ComparisonSinkTest extends TestBase {
+
+    @Test
+    public void testSinkReceivesAllComparisons() throws ExitException {
+        JPlagResult expected = runJPlagWithDefaultOptions("SimpleDuplicate");
+        for (ComparisonMode mode : new ComparisonMode[] {ComparisonMode.NORMAL, ComparisonMode.PARALLEL}) {
+            JPlagOptions options = new JPlagOptions("src/test/resources/samples/SimpleDuplicate", LanguageOption.JAVA_1_9);
+            options.setComparisonMode(mode);
+            List<JPlagComparison> comparisons = new ArrayList<>();
+            JPlagResult result = new JPlag(options).run(comparisons::add);
+
+            assertTrue(result.getComparisons().isEmpty());
+            assertArrayEquals(expected.getSimilarityDistribution(), result.getSimilarityDistribution());
+            assertEquals(expected.getComparisons().size(), comparisons.size());
+            for (int i = 0; i < comparisons.size(); i++) {
+                assertEquals(expected.getComparisons().get(i).toString(), comparisons.get(i).toString());
+                assertEquals(expected.getComparisons().get(i).percent(), comparisons.get(i).percent(), 0f);
+            }
+        }
+    }
+}
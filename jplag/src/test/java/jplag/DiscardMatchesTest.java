@@ -0,0 +1,28 @@
+package jplag;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DiscardMatchesTest extends TestBase {
+
+    @Test
+    public void testDiscardedMatchesAreRestored() throws ExitException {
+        JPlagResult expected = runJPlagWithDefaultOptions("SimpleDuplicate");
+        JPlagResult result = runJPlag("SimpleDuplicate", options -> options.setDiscardMatches(true));
+
+        assertEquals(expected.getComparisons().size(), result.getComparisons().size());
+        JPlagComparison expectedComparison = expected.getComparisons().get(0);
+        JPlagComparison comparison = result.getComparisons().get(0);
+        assertTrue(comparison.hasDiscardedMatches());
+        assertTrue(comparison.matches.isEmpty());
+        assertEquals(expectedComparison.percent(), comparison.percent(), 0f);
+
+        result.restoreMatches(result.getComparisons());
+        assertFalse(comparison.hasDiscardedMatches());
+        assertEquals(expectedComparison.matches.size(), comparison.matches.size());
+        assertEquals(expectedComparison.percent(), comparison.percent(), 0f);
+    }
+}
@@ -0,0 +1,40 @@
+package jplag;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class HashIndexTest {
+
+    @Test
+    public void testPositionsAreGroupedInAscendingOrder() {
+        long[] hashes = {7, HashIndex.NO_HASH, 3, 7, 7, HashIndex.NO_HASH, 3};
+        HashIndex index = new HashIndex(hashes);
+
+        assertEquals(5, index.size());
+        assertEquals(2, index.getNumberOfGroups());
+        assertEquals(-1, index.find(4));
+
+        int group = index.find(7);
+        assertEquals(3, index.end(group) - index.start(group));
+        assertEquals(0, index.position(index.start(group)));
+        assertEquals(3, index.position(index.start(group) + 1));
+        assertEquals(4, index.position(index.start(group) + 2));
+    }
+
+    @Test
+    public void testManyDistinctHashes() {
+        long[] hashes = new long[100000];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = i * 31L << 32;
+        }
+        HashIndex index = new HashIndex(hashes);
+
+        assertEquals(hashes.length, index.getNumberOfGroups());
+        for (int i = 0; i < hashes.length; i++) {
+            int group = index.find(i * 31L << 32);
+            assertEquals(1, index.end(group) - index.start(group));
+            assertEquals(i, index.position(index.start(group)));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package jplag;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import jplag.strategy.ComparisonMode;
+
+public class IncrementalComparisonTest extends TestBase {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testOnlyNewSubmissionsAreCompared() throws ExitException, IOException {
+        String newSubmissionDirectory = createNewSubmission("C");
+        JPlagResult result = runJPlag("SimpleDuplicate", options -> {
+            options.setComparisonMode(ComparisonMode.INCREMENTAL);
+            options.setNewSubmissionDirectoryName(newSubmissionDirectory);
+        });
+
+        assertEquals(2, result.getComparisons().size());
+        for (JPlagComparison comparison : result.getComparisons()) {
+            assertTrue(comparison.firstSubmission.isNew() || comparison.secondSubmission.isNew());
+        }
+    }
+
+    @Test
+    public void testMostSimilarPeersAreKept() throws ExitException, IOException {
+        String newSubmissionDirectory = createNewSubmission("C");
+        JPlagResult result = runJPlag("SimpleDuplicate", options -> {
+            options.setComparisonMode(ComparisonMode.INCREMENTAL);
+            options.setNewSubmissionDirectoryName(newSubmissionDirectory);
+            options.setNumberOfSubmissionsToCompareTo(1);
+        });
+
+        // both comparisons are the most similar one of A or B, respectively:
+        assertEquals(2, result.getComparisons().size());
+    }
+
+    /* Creates a directory of new submissions with a copy of submission B. */
+    private String createNewSubmission(String name) throws IOException {
+        File newSubmissionDirectory = folder.newFolder("new");
+        File submission = new File(newSubmissionDirectory, name);
+        submission.mkdir();
+        Files.copy(new File("src/test/resources/samples/SimpleDuplicate/B/SimpleDuplicate.java").toPath(),
+                new File(submission, "SimpleDuplicate.java").toPath());
+        return newSubmissionDirectory.getPath();
+    }
+}
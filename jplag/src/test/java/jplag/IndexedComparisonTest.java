@@ -0,0 +1,73 @@
+package jplag;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import jplag.options.JPlagOptions;
+import jplag.options.LanguageOption;
+import jplag.strategy.ComparisonMode;
+import jplag.strategy.IndexedComparisonStrategy;
+
+public class IndexedComparisonTest extends TestBase {
+
+    @Test
+    public void testSameResultAsNormalComparison() throws ExitException {
+        JPlagResult expected = runJPlagWithDefaultOptions("SimpleDuplicate");
+        JPlagResult result = runJPlag("SimpleDuplicate", options -> options.setComparisonMode(ComparisonMode.INDEXED));
+
+        assertEquals(expected.getComparisons().size(), result.getComparisons().size());
+        for (int i = 0; i < expected.getComparisons().size(); i++) {
+            JPlagComparison expectedComparison = expected.getComparisons().get(i);
+            JPlagComparison comparison = result.getComparisons().get(i);
+            assertEquals(expectedComparison.toString(), comparison.toString());
+            assertEquals(expectedComparison.percent(), comparison.percent(), 0f);
+            assertEquals(expectedComparison.matches.size(), comparison.matches.size());
+        }
+    }
+
+    @Test
+    public void testSameResultAsNormalComparisonWithThreshold() throws ExitException {
+        JPlagResult expected = runJPlag("SimpleDuplicate", options -> options.setSimilarityThreshold(50));
+        JPlagResult result = runJPlag("SimpleDuplicate", options -> {
+            options.setComparisonMode(ComparisonMode.INDEXED);
+            options.setSimilarityThreshold(50);
+        });
+
+        assertEquals(expected.getComparisons().size(), result.getComparisons().size());
+        for (int i = 0; i < expected.getComparisons().size(); i++) {
+            assertEquals(expected.getComparisons().get(i).percent(), result.getComparisons().get(i).percent(), 0f);
+        }
+    }
+
+    @Test
+    public void testComparesOnlyPairsWithSharedKGrams() throws ExitException {
+        // the texts contain two near duplicates, and a third one shares a phrase with one of them:
+        Consumer<JPlagOptions> threshold = options -> options.setSimilarityThreshold(50);
+        JPlagResult expected = createJPlag("Texts", LanguageOption.CHAR, threshold).run();
+        JPlag jplag = createJPlag("Texts", LanguageOption.CHAR,
+                threshold.andThen(options -> options.setComparisonMode(ComparisonMode.INDEXED)));
+        JPlagResult result = jplag.run();
+
+        assertSameComparisons(expected, result);
+        assertEquals(2, result.getComparisons().size());
+        assertEquals(7, result.getNumberOfSubmissions());
+        // 4 of the 21 pairs share a k-gram:
+        assertEquals(4, ((IndexedComparisonStrategy) jplag.getComparisonStrategy()).getNumberOfCandidates());
+    }
+
+    @Test
+    public void testSameResultWithoutThreshold() throws ExitException {
+        // all 21 pairs are part of the result, but only the 4 pairs with shared k-grams are tiled:
+        JPlagResult expected = createJPlag("Texts", LanguageOption.CHAR, options -> {
+        }).run();
+        JPlag jplag = createJPlag("Texts", LanguageOption.CHAR, options -> options.setComparisonMode(ComparisonMode.INDEXED));
+        JPlagResult result = jplag.run();
+
+        assertSameComparisons(expected, result);
+        assertEquals(21, result.getComparisons().size());
+        assertEquals(4, ((IndexedComparisonStrategy) jplag.getComparisonStrategy()).getNumberOfCandidates());
+    }
+}
@@ -0,0 +1,46 @@
+package jplag;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MatchIntervalsTest {
+
+    @Test
+    public void testSameOverlapsAsLinearScan() {
+        Random random = new Random(42);
+        MatchIntervals intervals = new MatchIntervals();
+        List<Match> matches = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            int startA = random.nextInt(2000);
+            int startB = random.nextInt(2000);
+            int length = 1 + random.nextInt(20);
+            boolean expected = matches.stream().anyMatch(match -> match.overlap(startA, startB, length));
+
+            assertEquals(expected, intervals.overlaps(startA, startB, length));
+            if (!expected) {
+                intervals.add(startA, startB, length);
+                matches.add(new Match(startA, startB, length));
+            }
+        }
+        assertEquals(matches.size(), intervals.size());
+    }
+
+    @Test
+    public void testAdjacentMatchesDoNotOverlap() {
+        MatchIntervals intervals = new MatchIntervals();
+        intervals.add(10, 50, 5);
+
+        assertFalse(intervals.overlaps(15, 45, 5));
+        assertTrue(intervals.overlaps(14, 0, 5));
+        assertTrue(intervals.overlaps(0, 54, 1));
+        intervals.clear();
+        assertFalse(intervals.overlaps(10, 50, 5));
+    }
+}
@@ -0,0 +1,114 @@
+package jplag;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import jplag.options.JPlagOptions;
+import jplag.options.LanguageOption;
+import jplag.strategy.ComparisonMode;
+import jplag.strategy.MinHashComparisonStrategy;
+
+public class MinHashComparisonTest extends TestBase {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testFindsNearDuplicates() throws ExitException {
+        // the texts contain two near duplicates, and a third one shares a phrase with one of them:
+        JPlagResult expected = createJPlag("Texts", LanguageOption.CHAR,
+                options -> options.setSimilarityThreshold(50)).run();
+        JPlag jplag = createMinHashJPlag(options -> options.setSimilarityThreshold(50));
+        JPlagResult result = jplag.run();
+
+        assertSameComparisons(expected, result);
+        assertEquals(2, result.getComparisons().size());
+        assertEquals(2, getNumberOfCandidates(jplag)); // of 21 pairs
+    }
+
+    @Test
+    public void testSameCandidatesInEveryRun() throws ExitException {
+        Consumer<JPlagOptions> configuration = options -> {
+            options.setMinHashBands(64);
+            options.setMinHashRows(1);
+        };
+        JPlag jplag = createMinHashJPlag(configuration);
+        JPlagResult result = jplag.run();
+        JPlag otherJPlag = createMinHashJPlag(configuration);
+        JPlagResult otherResult = otherJPlag.run();
+
+        assertSameComparisons(result, otherResult);
+        assertEquals(getNumberOfCandidates(jplag), getNumberOfCandidates(otherJPlag));
+        assertEquals(4, getNumberOfCandidates(jplag)); // also the pairs of the shared phrase
+    }
+
+    @Test
+    public void testBandsAndRowsOfOptions() throws ExitException {
+        JPlagOptions options = new JPlagOptions("Texts", LanguageOption.CHAR);
+        options.setMinHashBands(0);
+        options.setMinHashRows(-1);
+        assertEquals(1, options.getMinHashBands());
+        assertEquals(1, options.getMinHashRows());
+
+        // a single band of many rows requires almost equal k-gram sets:
+        JPlag manyRows = createMinHashJPlag(it -> {
+            it.setMinHashBands(1);
+            it.setMinHashRows(64);
+        });
+        manyRows.run();
+        JPlag manyBands = createMinHashJPlag(it -> {
+            it.setMinHashBands(64);
+            it.setMinHashRows(1);
+        });
+        manyBands.run();
+        assertTrue(getNumberOfCandidates(manyRows) < getNumberOfCandidates(manyBands));
+    }
+
+    @Test
+    public void testRecallCountsOnlyPairsWithMatches() throws ExitException, IOException {
+        File submissionDirectory = folder.newFolder("submissions");
+        createSubmission(submissionDirectory, "A", "the cat sat on the mat and then the cat ate the rat");
+        createSubmission(submissionDirectory, "B", "the cat sat on the mat and then the dog ate the rat");
+        createSubmission(submissionDirectory, "C", "qqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqqq");
+        JPlagOptions options = new JPlagOptions(submissionDirectory.getPath(), LanguageOption.CHAR);
+        options.setComparisonMode(ComparisonMode.MINHASH);
+        JPlag jplag = new JPlag(options);
+        jplag.run();
+
+        // without a similarity threshold, the pairs of C are reported, but they share nothing and do not count as missed:
+        assertEquals(1, getNumberOfCandidates(jplag));
+        assertEquals(1.0, getEstimatedRecall(jplag), 0);
+    }
+
+    @Test
+    public void testRecallOfMissedPairs() throws ExitException {
+        // the default bands find the near duplicates, but not the two pairs of the shared phrase:
+        JPlag jplag = createMinHashJPlag(options -> {
+        });
+        jplag.run();
+
+        assertEquals(2, getNumberOfCandidates(jplag));
+        assertEquals(0.5, getEstimatedRecall(jplag), 0);
+    }
+
+    private JPlag createMinHashJPlag(Consumer<JPlagOptions> customization) throws ExitException {
+        return createJPlag("Texts", LanguageOption.CHAR,
+                customization.andThen(options -> options.setComparisonMode(ComparisonMode.MINHASH)));
+    }
+
+    private static int getNumberOfCandidates(JPlag jplag) {
+        return ((MinHashComparisonStrategy) jplag.getComparisonStrategy()).getNumberOfCandidates();
+    }
+
+    private static double getEstimatedRecall(JPlag jplag) {
+        return ((MinHashComparisonStrategy) jplag.getComparisonStrategy()).getEstimatedRecall();
+    }
+}
@@ -0,0 +1,41 @@
+package jplag;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import jplag.options.LanguageOption;
+import jplag.strategy.ComparisonMode;
+
+public class ParallelComparisonTest extends TestBase {
+
+    @Test
+    public void testSimpleDuplicate() throws ExitException {
+        JPlagResult result = runJPlag("SimpleDuplicate", options -> {
+            options.setComparisonMode(ComparisonMode.PARALLEL);
+            options.setNumberOfThreads(4);
+        });
+
+        assertEquals(2, result.getNumberOfSubmissions());
+        assertEquals(1, result.getComparisons().size());
+        assertEquals(1, result.getComparisons().get(0).matches.size());
+        assertEquals(1, result.getSimilarityDistribution()[6]);
+    }
+
+    @Test
+    public void testSameResultAsNormalComparison() throws ExitException {
+        // 7 submissions have 6 rows, which exceed the pending rows of a single thread:
+        for (float threshold : new float[] {0, 50}) {
+            JPlagResult expected = createJPlag("Texts", LanguageOption.CHAR, options -> options.setSimilarityThreshold(threshold)).run();
+            for (int threads : new int[] {1, 2, 4}) {
+                JPlagResult result = createJPlag("Texts", LanguageOption.CHAR, options -> {
+                    options.setComparisonMode(ComparisonMode.PARALLEL);
+                    options.setNumberOfThreads(threads);
+                    options.setSimilarityThreshold(threshold);
+                }).run();
+
+                assertSameComparisons(expected, result);
+            }
+        }
+    }
+}
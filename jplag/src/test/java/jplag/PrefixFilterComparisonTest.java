@@ -0,0 +1,57 @@
+package jplag;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import jplag.options.LanguageOption;
+import jplag.options.SimilarityMetric;
+import jplag.strategy.ComparisonMode;
+import jplag.strategy.PrefixFilterComparisonStrategy;
+
+public class PrefixFilterComparisonTest extends TestBase {
+
+    @Test
+    public void testSameResultAsNormalComparison() throws ExitException {
+        for (SimilarityMetric metric : SimilarityMetric.values()) {
+            JPlagResult expected = runJPlag("SimpleDuplicate", options -> {
+                options.setSimilarityMetric(metric);
+                options.setSimilarityThreshold(30);
+            });
+            JPlagResult result = runJPlag("SimpleDuplicate", options -> {
+                options.setComparisonMode(ComparisonMode.PREFIX_FILTER);
+                options.setSimilarityMetric(metric);
+                options.setSimilarityThreshold(30);
+            });
+
+            assertEquals(expected.getComparisons().size(), result.getComparisons().size());
+            for (int i = 0; i < expected.getComparisons().size(); i++) {
+                assertEquals(expected.getComparisons().get(i).percent(), result.getComparisons().get(i).percent(), 0f);
+            }
+        }
+    }
+
+    @Test
+    public void testSkipsPairsBelowThreshold() throws ExitException {
+        // the texts contain two near duplicates, and a third one shares a phrase with one of them:
+        for (SimilarityMetric metric : SimilarityMetric.values()) {
+            JPlagResult expected = createJPlag("Texts", LanguageOption.CHAR, options -> {
+                options.setSimilarityMetric(metric);
+                options.setSimilarityThreshold(80);
+            }).run();
+            JPlag jplag = createJPlag("Texts", LanguageOption.CHAR, options -> {
+                options.setComparisonMode(ComparisonMode.PREFIX_FILTER);
+                options.setSimilarityMetric(metric);
+                options.setSimilarityThreshold(80);
+            });
+            JPlagResult result = jplag.run();
+
+            assertSameComparisons(expected, result);
+            assertEquals(2, result.getComparisons().size());
+            PrefixFilterComparisonStrategy strategy = (PrefixFilterComparisonStrategy) jplag.getComparisonStrategy();
+            assertEquals(21, strategy.getNumberOfPairs());
+            // even the pair with the shared phrase is skipped:
+            assertEquals(2, strategy.getNumberOfCandidates());
+        }
+    }
+}
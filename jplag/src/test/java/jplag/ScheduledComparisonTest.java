@@ -0,0 +1,94 @@
+package jplag;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import jplag.options.LanguageOption;
+import jplag.strategy.ComparisonMode;
+import jplag.strategy.ScheduledComparisonStrategy;
+
+public class ScheduledComparisonTest extends TestBase {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSimpleDuplicate() throws ExitException {
+        JPlagResult result = runJPlag("SimpleDuplicate", options -> {
+            options.setComparisonMode(ComparisonMode.SCHEDULED);
+            options.setNumberOfThreads(4);
+        });
+
+        assertEquals(2, result.getNumberOfSubmissions());
+        assertEquals(1, result.getComparisons().size());
+        assertEquals(1, result.getComparisons().get(0).matches.size());
+        assertEquals(1, result.getSimilarityDistribution()[6]);
+    }
+
+    @Test
+    public void testSameResultAsNormalComparison() throws ExitException {
+        JPlagResult expected = runJPlagWithDefaultOptions("SimpleDuplicate");
+        JPlagResult result = runJPlag("SimpleDuplicate", options -> options.setComparisonMode(ComparisonMode.SCHEDULED));
+
+        assertEquals(expected.getComparisons().size(), result.getComparisons().size());
+        for (int i = 0; i < expected.getComparisons().size(); i++) {
+            JPlagComparison expectedComparison = expected.getComparisons().get(i);
+            JPlagComparison comparison = result.getComparisons().get(i);
+            assertEquals(expectedComparison.toString(), comparison.toString());
+            assertEquals(expectedComparison.percent(), comparison.percent(), 0f);
+            assertEquals(expectedComparison.matches.size(), comparison.matches.size());
+        }
+    }
+
+    @Test
+    public void testSameResultOnSeveralSubmissions() throws ExitException {
+        for (float threshold : new float[] {0, 50}) {
+            JPlagResult expected = createJPlag("Texts", LanguageOption.CHAR,
+                    options -> options.setSimilarityThreshold(threshold)).run();
+            JPlag jplag = createJPlag("Texts", LanguageOption.CHAR, options -> {
+                options.setComparisonMode(ComparisonMode.SCHEDULED);
+                options.setNumberOfThreads(4);
+                options.setSimilarityThreshold(threshold);
+            });
+            JPlagResult result = jplag.run();
+
+            assertSameComparisons(expected, result);
+            ScheduledComparisonStrategy strategy = (ScheduledComparisonStrategy) jplag.getComparisonStrategy();
+            assertEquals(21, strategy.getNumberOfPairs()); // all pairs are scheduled, whatever their similarity
+            assertTrue(Math.abs(strategy.getCostCorrelation()) <= 1);
+        }
+    }
+
+    @Test
+    public void testSameResultOverSeveralWindows() throws ExitException, IOException {
+        // 30 submissions have 435 pairs, which need two windows of a single thread:
+        File submissionDirectory = folder.newFolder("submissions");
+        Random random = new Random(42);
+        for (int i = 0; i < 30; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int k = 0; k < 200; k++) {
+                text.append((char) ('a' + random.nextInt(3)));
+            }
+            createSubmission(submissionDirectory, "S" + i, text.toString());
+        }
+        JPlagResult expected = runJPlag(submissionDirectory, options -> {
+        });
+        for (int threads : new int[] {1, 4}) {
+            JPlagResult result = runJPlag(submissionDirectory, options -> {
+                options.setComparisonMode(ComparisonMode.SCHEDULED);
+                options.setNumberOfThreads(threads);
+            });
+
+            assertEquals(435, expected.getComparisons().size());
+            assertSameComparisons(expected, result);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package jplag;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class SuffixArrayTilingTest {
+
+    @Test
+    public void testSameSuffixArrayAndLcpAsSorting() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            int[] text = random.ints(random.nextInt(300), 0, 1 + random.nextInt(5)).toArray();
+            Integer[] expected = IntStream.range(0, text.length).boxed().toArray(Integer[]::new);
+            Arrays.sort(expected, Comparator.comparing((Integer start) -> Arrays.copyOfRange(text, start, text.length), Arrays::compare));
+            int[] expectedLcp = new int[text.length];
+            for (int r = 1; r < text.length; r++) {
+                while (expected[r - 1] + expectedLcp[r] < text.length && expected[r] + expectedLcp[r] < text.length
+                        && text[expected[r - 1] + expectedLcp[r]] == text[expected[r] + expectedLcp[r]]) {
+                    expectedLcp[r]++;
+                }
+            }
+
+            int[] suffixArray = SuffixArrayTiling.buildSuffixArray(text);
+            int[] ranks = new int[text.length];
+            for (int r = 0; r < text.length; r++) {
+                ranks[suffixArray[r]] = r;
+            }
+            assertArrayEquals(Arrays.stream(expected).mapToInt(Integer::intValue).toArray(), suffixArray);
+            assertArrayEquals(expectedLcp, SuffixArrayTiling.buildLcpArray(text, suffixArray, ranks));
+        }
+    }
+}
@@ -1,17 +1,71 @@
 package jplag;
 
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.function.Consumer;
+
 import jplag.options.JPlagOptions;
 import jplag.options.LanguageOption;
 
 public abstract class TestBase {
 
     protected JPlagResult runJPlagWithDefaultOptions(String testSampleName) throws ExitException {
+        return runJPlag(testSampleName, options -> {
+        });
+    }
+
+    protected JPlagResult runJPlag(String testSampleName, Consumer<JPlagOptions> customization) throws ExitException {
+        return createJPlag(testSampleName, LanguageOption.JAVA_1_9, customization).run();
+    }
+
+    /**
+     * Creates JPlag for a sample, so that a test can inspect its state after the run.
+     */
+    protected JPlag createJPlag(String testSampleName, LanguageOption language, Consumer<JPlagOptions> customization)
+            throws ExitException {
         JPlagOptions options = new JPlagOptions(
                 String.format("src/test/resources/samples/%s", testSampleName),
-                LanguageOption.JAVA_1_9);
+                language);
+        customization.accept(options);
+
+        return new JPlag(options);
+    }
+
+    /**
+     * Runs JPlag on generated submissions, whose characters are the tokens.
+     */
+    protected JPlagResult runJPlag(File submissionDirectory, Consumer<JPlagOptions> customization) throws ExitException {
+        JPlagOptions options = new JPlagOptions(submissionDirectory.getPath(), LanguageOption.CHAR);
+        customization.accept(options);
 
         JPlag jplag = new JPlag(options);
         return jplag.run();
     }
 
+    protected static void assertSameComparisons(JPlagResult expected, JPlagResult result) {
+        assertEquals(expected.getComparisons().size(), result.getComparisons().size());
+        for (int i = 0; i < expected.getComparisons().size(); i++) {
+            JPlagComparison expectedComparison = expected.getComparisons().get(i);
+            JPlagComparison comparison = result.getComparisons().get(i);
+            assertEquals(expectedComparison.toString(), comparison.toString());
+            assertEquals(expectedComparison.percent(), comparison.percent(), 0f);
+            assertEquals(expectedComparison.matches.size(), comparison.matches.size());
+        }
+    }
+
+    /**
+     * Creates a submission with a file for each of the given contents.
+     */
+    protected static void createSubmission(File submissionDirectory, String name, String... contents) throws IOException {
+        File directory = new File(submissionDirectory, name);
+        directory.mkdirs();
+        for (int i = 0; i < contents.length; i++) {
+            Files.write(new File(directory, "file" + i + ".txt").toPath(), contents[i].getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
 }
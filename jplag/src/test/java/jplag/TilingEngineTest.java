@@ -0,0 +1,215 @@
+package jplag;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import jplag.options.JPlagOptions;
+
+public class TilingEngineTest extends TestBase {
+
+    private static final int[] MINIMUM_MATCH_LENGTHS = {1, 2, 3, 5, 9, 12};
+    private static final int[] LARGE_MINIMUM_MATCH_LENGTHS = {9};
+    private static final float[] SIMILARITY_THRESHOLDS = {0, 40, 80};
+    private static final int[] ALPHABET_SIZES = {1, 2, 3, 5, 26};
+    private static final Consumer<JPlagOptions> SUFFIX_ARRAY = options -> options.setSuffixArrayTilingThreshold(1);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRunningKarpRabinTilesLikeHashes() throws ExitException {
+        assertSameTiles(options -> options.setTilingMode(TilingMode.RUNNING_KARP_RABIN));
+    }
+
+    @Test
+    public void testSuffixArrayTilesLikeHashes() throws ExitException {
+        assertSameTiles(options -> options.setSuffixArrayTilingThreshold(1));
+    }
+
+    @Test
+    public void testParallelSearchTilesLikeHashes() throws ExitException {
+        assertSameTiles(options -> {
+            options.setNumberOfThreads(4);
+            options.setParallelTilingThreshold(1);
+        });
+        assertSameTiles(options -> {
+            options.setNumberOfThreads(4);
+            options.setParallelTilingThreshold(1);
+            options.setSuffixArrayTilingThreshold(1);
+        });
+    }
+
+    @Test
+    public void testSuffixArrayTilesRepeatsLikeHashes() throws ExitException, IOException {
+        File submissionDirectory = folder.newFolder("submissions");
+        createSubmission(submissionDirectory, "A", "a".repeat(60), "ab".repeat(40) + "c" + "ab".repeat(20));
+        createSubmission(submissionDirectory, "B", "ab".repeat(30) + "a".repeat(25) + "b".repeat(25));
+        createSubmission(submissionDirectory, "C", "abc".repeat(30), "ba".repeat(35) + "a".repeat(10));
+        createSubmission(submissionDirectory, "D", "aab".repeat(20) + "abab".repeat(15));
+        assertSameTiles(submissionDirectory, options -> {
+        }, SUFFIX_ARRAY);
+    }
+
+    @Test
+    public void testSuffixArrayTilesAcrossFilesLikeHashes() throws ExitException, IOException {
+        // the file ends are pivots, so a tile must not span two files:
+        File submissionDirectory = folder.newFolder("submissions");
+        createSubmission(submissionDirectory, "A", "abcdefghij", "klmnopqrst", "uvwxyz");
+        createSubmission(submissionDirectory, "B", "abcdefghijklmnopqrstuvwxyz", "fghijklm");
+        createSubmission(submissionDirectory, "C", "pqrstuvwxyzabcde", "hijklmno", "abcdefghij");
+        createSubmission(submissionDirectory, "D", "zyxwvutsrqponmlkjihgfedcba");
+        assertSameTiles(submissionDirectory, options -> {
+        }, SUFFIX_ARRAY);
+    }
+
+    @Test
+    public void testSuffixArrayTilesWithBaseCodeLikeHashes() throws ExitException, IOException {
+        // the tokens that match the base code are excluded from the comparisons:
+        File submissionDirectory = folder.newFolder("submissions");
+        String template = "publicclassmain";
+        createSubmission(submissionDirectory, "base", template, "printhello");
+        createSubmission(submissionDirectory, "A", template + "quicksortpivot", "printhelloagain");
+        createSubmission(submissionDirectory, "B", "quicksortpivot" + template, "sayhello" + "printhello");
+        createSubmission(submissionDirectory, "C", template + "bubblesortswap" + template, "quicksort");
+        for (boolean indexMasking : new boolean[] {false, true}) {
+            assertSameTiles(submissionDirectory, options -> {
+                options.setBaseCodeSubmissionName("base");
+                options.setBaseCodeIndexMasking(indexMasking);
+            }, SUFFIX_ARRAY);
+        }
+    }
+
+    @Test
+    public void testRunningKarpRabinTilesGeneratedSubmissionsLikeHashes() throws ExitException, IOException {
+        assertSameTilesOfGeneratedSubmissions(options -> options.setTilingMode(TilingMode.RUNNING_KARP_RABIN));
+    }
+
+    @Test
+    public void testSuffixArrayTilesGeneratedSubmissionsLikeHashes() throws ExitException, IOException {
+        assertSameTilesOfGeneratedSubmissions(SUFFIX_ARRAY);
+    }
+
+    @Test
+    public void testParallelSearchTilesGeneratedSubmissionsLikeHashes() throws ExitException, IOException {
+        // the submissions are large enough to split the search among several tasks:
+        Random random = new Random(42);
+        for (int alphabetSize : new int[] {2, 26}) {
+            File submissionDirectory = folder.newFolder("alphabet" + alphabetSize);
+            generateSubmissions(submissionDirectory, random, alphabetSize, 3, 10000);
+            Consumer<JPlagOptions> parallel = options -> {
+                options.setNumberOfThreads(4);
+                options.setParallelTilingThreshold(1);
+            };
+            assertSameTiles(submissionDirectory, LARGE_MINIMUM_MATCH_LENGTHS, options -> {
+            }, parallel);
+            assertSameTiles(submissionDirectory, LARGE_MINIMUM_MATCH_LENGTHS, options -> {
+            }, parallel.andThen(SUFFIX_ARRAY));
+        }
+    }
+
+    private void assertSameTilesOfGeneratedSubmissions(Consumer<JPlagOptions> engine) throws ExitException, IOException {
+        Random random = new Random(42);
+        for (int alphabetSize : ALPHABET_SIZES) {
+            File submissionDirectory = folder.newFolder("alphabet" + alphabetSize);
+            generateSubmissions(submissionDirectory, random, alphabetSize, 6, 300);
+            assertSameTiles(submissionDirectory, options -> {
+            }, engine);
+        }
+    }
+
+    /**
+     * Generates submissions of random characters, which copy random parts of a common text, so they have matches of all
+     * lengths. Small alphabets produce many repeats and equally long matches.
+     * @param length is the approximate maximum length of the files.
+     */
+    private static void generateSubmissions(File submissionDirectory, Random random, int alphabetSize, int numberOfSubmissions,
+            int length) throws IOException {
+        String common = randomText(random, alphabetSize, length);
+        int maximumCopy = length / 5;
+        for (int i = 0; i < numberOfSubmissions; i++) {
+            String[] files = new String[1 + random.nextInt(2)];
+            for (int j = 0; j < files.length; j++) {
+                StringBuilder content = new StringBuilder();
+                int fileLength = 20 + random.nextInt(length);
+                while (content.length() < fileLength) {
+                    if (random.nextInt(3) == 0) {
+                        int start = random.nextInt(common.length() - maximumCopy);
+                        content.append(common, start, start + 1 + random.nextInt(maximumCopy));
+                    } else {
+                        content.append(randomText(random, alphabetSize, 1 + random.nextInt(10)));
+                    }
+                }
+                files[j] = content.toString();
+            }
+            createSubmission(submissionDirectory, "submission" + i, files);
+        }
+    }
+
+    private static String randomText(Random random, int alphabetSize, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + random.nextInt(alphabetSize)));
+        }
+        return text.toString();
+    }
+
+    private void assertSameTiles(Consumer<JPlagOptions> engine) throws ExitException {
+        for (int minimumMatchLength : MINIMUM_MATCH_LENGTHS) {
+            JPlagResult expected = runJPlag("SimpleDuplicate", options -> {
+                options.setMinTokenMatch(minimumMatchLength);
+                options.setSuffixArrayTilingThreshold(0);
+            });
+            JPlagResult result = runJPlag("SimpleDuplicate", options -> {
+                options.setMinTokenMatch(minimumMatchLength);
+                options.setSuffixArrayTilingThreshold(0);
+                engine.accept(options);
+            });
+            assertSameTiles(expected, result);
+        }
+    }
+
+    /* Compares the engine with the hash-based one, also with similarity thresholds that abort the comparisons early. */
+    private void assertSameTiles(File submissionDirectory, Consumer<JPlagOptions> customization, Consumer<JPlagOptions> engine)
+            throws ExitException {
+        assertSameTiles(submissionDirectory, MINIMUM_MATCH_LENGTHS, customization, engine);
+    }
+
+    private void assertSameTiles(File submissionDirectory, int[] minimumMatchLengths, Consumer<JPlagOptions> customization,
+            Consumer<JPlagOptions> engine) throws ExitException {
+        for (int minimumMatchLength : minimumMatchLengths) {
+            for (float similarityThreshold : SIMILARITY_THRESHOLDS) {
+                Consumer<JPlagOptions> configuration = customization.andThen(options -> {
+                    options.setMinTokenMatch(minimumMatchLength);
+                    options.setSimilarityThreshold(similarityThreshold);
+                });
+                JPlagResult expected = runJPlag(submissionDirectory, configuration);
+                JPlagResult result = runJPlag(submissionDirectory, configuration.andThen(engine));
+                assertSameTiles(expected, result);
+            }
+        }
+    }
+
+    private static void assertSameTiles(JPlagResult expected, JPlagResult result) {
+        assertEquals(expected.getComparisons().size(), result.getComparisons().size());
+        for (int i = 0; i < expected.getComparisons().size(); i++) {
+            assertEquals(expected.getComparisons().get(i).toString(), result.getComparisons().get(i).toString());
+            List<Match> expectedMatches = expected.getComparisons().get(i).matches;
+            List<Match> matches = result.getComparisons().get(i).matches;
+            assertEquals(expectedMatches.size(), matches.size());
+            for (int j = 0; j < expectedMatches.size(); j++) {
+                assertEquals(expectedMatches.get(j).startA, matches.get(j).startA);
+                assertEquals(expectedMatches.get(j).startB, matches.get(j).startB);
+                assertEquals(expectedMatches.get(j).length, matches.get(j).length);
+            }
+        }
+    }
+}
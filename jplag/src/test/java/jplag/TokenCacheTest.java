@@ -0,0 +1,100 @@
+package jplag;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TokenCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testStoredTokensAreLoaded() throws Exception {
+        TokenCache cache = new TokenCache(folder.newFolder("cache"), Long.MAX_VALUE, "JAVA_1_9", "1.0");
+        String key = cache.getKey(createFile("A.java", "class A {}"));
+        cache.store(key, createTokens());
+
+        List<Token> tokens = cache.load(key, "B.java");
+        assertEquals(2, tokens.size());
+        assertEquals(7, tokens.get(0).type);
+        assertEquals("B.java", tokens.get(0).file);
+        assertEquals(3, tokens.get(0).getLine());
+        assertEquals(5, tokens.get(0).getColumn());
+        assertEquals(9, tokens.get(0).getLength());
+        assertEquals(42, tokens.get(0).getIndex());
+        assertEquals(TokenConstants.FILE_END, tokens.get(1).type);
+        assertEquals(1, cache.getNumberOfHits());
+    }
+
+    @Test
+    public void testKeyDependsOnContentAndFrontend() throws Exception {
+        File cacheDirectory = folder.newFolder("cache");
+        TokenCache cache = new TokenCache(cacheDirectory, Long.MAX_VALUE, "JAVA_1_9", "1.0");
+        String key = cache.getKey(createFile("A.java", "class A {}"));
+
+        assertEquals(key, cache.getKey(createFile("B.java", "class A {}")));
+        assertNotEquals(key, cache.getKey(createFile("C.java", "class C {}")));
+        TokenCache otherVersion = new TokenCache(cacheDirectory, Long.MAX_VALUE, "JAVA_1_9", "1.1");
+        assertNotEquals(key, otherVersion.getKey(createFile("D.java", "class A {}")));
+        TokenCache otherLanguage = new TokenCache(cacheDirectory, Long.MAX_VALUE, "JAVA_1_7", "1.0");
+        assertNotEquals(key, otherLanguage.getKey(createFile("E.java", "class A {}")));
+    }
+
+    @Test
+    public void testCorruptEntryIsMissing() throws Exception {
+        File cacheDirectory = folder.newFolder("cache");
+        TokenCache cache = new TokenCache(cacheDirectory, Long.MAX_VALUE, "JAVA_1_9", "1.0");
+        String key = cache.getKey(createFile("A.java", "class A {}"));
+        cache.store(key, createTokens());
+        File entry = cacheDirectory.listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(entry, "rw")) {
+            file.seek(20);
+            file.write(0xFF);
+        }
+
+        assertNull(cache.load(key, "A.java"));
+        assertEquals(1, cache.getNumberOfInvalidEntries());
+        assertEquals(0, cacheDirectory.listFiles().length);
+    }
+
+    @Test
+    public void testEvictionRemovesLeastRecentlyUsedEntries() throws Exception {
+        File cacheDirectory = folder.newFolder("cache");
+        TokenCache cache = new TokenCache(cacheDirectory, Long.MAX_VALUE, "JAVA_1_9", "1.0");
+        String oldKey = cache.getKey(createFile("A.java", "class A {}"));
+        String newKey = cache.getKey(createFile("B.java", "class B {}"));
+        cache.store(oldKey, createTokens());
+        cache.store(newKey, createTokens());
+        new File(cacheDirectory, oldKey + ".tokens").setLastModified(1000);
+        long entrySize = new File(cacheDirectory, newKey + ".tokens").length();
+
+        TokenCache smallCache = new TokenCache(cacheDirectory, entrySize, "JAVA_1_9", "1.0");
+        assertEquals(1, smallCache.evict());
+        assertNull(smallCache.load(oldKey, "A.java"));
+        assertEquals(2, smallCache.load(newKey, "B.java").size());
+    }
+
+    private File createFile(String name, String content) throws IOException {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<Token> createTokens() {
+        return Arrays.asList(new CachedToken(7, "A.java", 3, 5, 9, 42),
+                new CachedToken(TokenConstants.FILE_END, "A.java", 4, -1, -1, -1));
+    }
+}
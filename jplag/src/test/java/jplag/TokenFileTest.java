@@ -0,0 +1,68 @@
+package jplag;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TokenFileTest {
+
+    @Test
+    public void testEncodedSequenceIsDecoded() throws IOException {
+        TokenSequence sequence = createSequence();
+        TokenSequence decoded = TokenFile.decode(ByteBuffer.wrap(TokenFile.encode(sequence)));
+
+        assertEquals(sequence.size(), decoded.size());
+        assertArrayEquals(sequence.getFiles(), decoded.getFiles());
+        for (int i = 0; i < sequence.size(); i++) {
+            assertEquals(sequence.getType(i), decoded.getType(i));
+            assertEquals(sequence.getFile(i), decoded.getFile(i));
+            assertEquals(sequence.getLine(i), decoded.getLine(i));
+            assertEquals(sequence.getColumn(i), decoded.getColumn(i));
+            assertEquals(sequence.getLength(i), decoded.getLength(i));
+            assertEquals(sequence.getIndex(i), decoded.getIndex(i));
+        }
+    }
+
+    @Test
+    public void testDecodingStartsAtBufferPosition() throws IOException {
+        byte[] encoded = TokenFile.encode(createSequence());
+        ByteBuffer buffer = ByteBuffer.allocate(encoded.length + 3);
+        buffer.position(3);
+        buffer.put(encoded);
+        buffer.position(3);
+
+        assertEquals(5, TokenFile.decode(buffer).size());
+    }
+
+    @Test
+    public void testCorruptSequenceIsRejected() {
+        byte[] encoded = TokenFile.encode(createSequence());
+        for (int i = 0; i < encoded.length; i++) {
+            byte[] corrupt = encoded.clone();
+            corrupt[i] ^= 0x10;
+            assertRejected(corrupt);
+        }
+        assertRejected(Arrays.copyOf(encoded, encoded.length - 1));
+    }
+
+    private static void assertRejected(byte[] encoded) {
+        try {
+            TokenFile.decode(ByteBuffer.wrap(encoded));
+            fail("Corrupt token file was decoded");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static TokenSequence createSequence() {
+        return new TokenSequence(Arrays.asList(new CachedToken(3, "A.java", 1, 5, 9, -1),
+                new CachedToken(300, "A.java", 70000, 0, 1, -1), new CachedToken(0, "A.java", 70000, -1, -1, -1),
+                new CachedToken(2, "sub/B.java", 12, 4, 2, 100), new CachedToken(0, "sub/B.java", 3, -1, -1, 7)));
+    }
+}
@@ -0,0 +1,44 @@
+package jplag;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TokenMarksTest {
+
+    @Test
+    public void testMarkRangeAcrossWords() {
+        TokenMarks marks = new TokenMarks(200);
+        marks.markRange(60, 80);
+
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i >= 60 && i < 140, marks.isMarked(i));
+        }
+    }
+
+    @Test
+    public void testMarkRangeWithinWord() {
+        TokenMarks marks = new TokenMarks(64);
+        marks.markRange(3, 5);
+
+        assertFalse(marks.isMarked(2));
+        assertTrue(marks.isMarked(3));
+        assertTrue(marks.isMarked(7));
+        assertFalse(marks.isMarked(8));
+    }
+
+    @Test
+    public void testCopyFromReplacesMarks() {
+        TokenMarks initial = new TokenMarks(100);
+        initial.mark(99);
+        TokenMarks marks = new TokenMarks(0);
+        marks.copyFrom(initial);
+        marks.markRange(10, 10);
+        marks.copyFrom(initial);
+
+        assertFalse(marks.isMarked(10));
+        assertTrue(marks.isMarked(99));
+    }
+}
@@ -0,0 +1,36 @@
+package jplag.strategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import jplag.JPlagComparison;
+
+public class TopComparisonsTest {
+
+    @Test
+    public void testMostSimilarComparisonsAreKept() {
+        Map<JPlagComparison, Double> similarities = new IdentityHashMap<>();
+        double[] values = {10, 70, 30, 70, 90, 50, 70};
+        JPlagComparison[] comparisons = new JPlagComparison[values.length];
+        TopComparisons topComparisons = new TopComparisons(3, similarities::get);
+        for (int i = 0; i < values.length; i++) {
+            comparisons[i] = new JPlagComparison(null, null);
+            similarities.put(comparisons[i], values[i]);
+            topComparisons.accept(comparisons[i]);
+        }
+
+        List<JPlagComparison> kept = topComparisons.getComparisons();
+        assertEquals(7, topComparisons.getNumberOfReceivedComparisons());
+        assertEquals(3, kept.size());
+        assertSame(comparisons[4], kept.get(0));
+        // ties keep the earlier comparisons in their original order:
+        assertSame(comparisons[1], kept.get(1));
+        assertSame(comparisons[3], kept.get(2));
+    }
+}